@@ -0,0 +1,205 @@
+/**
+ * BatchSolver
+ *
+ * Runs a command file of setState/solve pairs with the solves spread over
+ * a fixed pool of threads. The file is read as a stream and each solve
+ * gets its own Puzzle, so solves share nothing but the SolutionCache.
+ * Results are written in input order: a finished result waits in a reorder
+ * buffer until every earlier one has been written. A semaphore caps the
+ * solves that are queued, running or waiting to be written, which keeps
+ * memory bounded however long the file is.
+ *
+ * Besides setState and solve, the file may use randomizeState, maxNodes
+ * and timeLimit, which apply to the solves that follow them.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.23
+ */
+package P1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+public class BatchSolver {
+
+    /** Solves in flight per thread before reading pauses **/
+    private static final int SLOTS_PER_THREAD = 4;
+
+    private final int threads;
+    private final SolutionCache cache;
+    private final Semaphore slots;
+
+    /** Results finished out of order, by sequence number **/
+    private final HashMap<Long, String> pending = new HashMap<Long, String>();
+    private long nextToWrite = 0;
+    private Writer out;
+    private IOException failure;
+
+    /**
+     * Constructs a BatchSolver
+     * @param  threads  the number of solves run at once
+     * @param  cache    the cache shared by every solve, or null
+     */
+    public BatchSolver(int threads, SolutionCache cache) {
+        if (1 > threads) {
+            throw new IllegalArgumentException();
+        }
+        this.threads = threads;
+        this.cache = cache;
+        this.slots = new Semaphore(SLOTS_PER_THREAD * threads);
+    }
+
+    /**
+     * Solves every solve command read, writing one line per command
+     * @param  in   the commands
+     * @param  out  where the results go; flushed, but not closed
+     */
+    public void run(BufferedReader in, Writer out)
+            throws IOException, InterruptedException {
+        this.out = out;
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        try {
+            String tiles = null;
+            int maxNodes = -1;
+            long timeLimit = 0;
+            long sequence = 0;
+            for (String line; null != (line = in.readLine()); ) {
+                String[] command = Parser.tokenizeCommand(line);
+                if (0 == command.length) {
+                    continue;
+                }
+                String name = command[0].toLowerCase();
+                this.slots.acquire();
+                long id = sequence++;
+                try {
+                    if (name.equals("setstate")) {
+                        tiles = command[1];
+                        complete(id, null);
+                    }
+                    else if (name.equals("randomizestate")) {
+                        Puzzle puzzle = new Puzzle(layoutOf(tiles));
+                        int steps = Integer.parseInt(command[1]);
+                        puzzle.scrambleGoal(steps, (2 < command.length)
+                            ? Long.parseLong(command[2]) : steps);
+                        tiles = puzzle.toString();
+                        complete(id, null);
+                    }
+                    else if (name.equals("maxnodes")) {
+                        maxNodes = Integer.parseInt(command[1]);
+                        complete(id, null);
+                    }
+                    else if (name.equals("timelimit")) {
+                        timeLimit = Long.parseLong(command[1]);
+                        complete(id, null);
+                    }
+                    else if (name.equals("solve")) {
+                        pool.execute(solver(id, tiles, maxNodes, timeLimit,
+                                            command));
+                    }
+                    else {
+                        complete(id, "Invalid input");
+                    }
+                }
+                catch (RuntimeException e) {
+                    complete(id, "Invalid input");
+                }
+            }
+            // every slot is back once every result has been written
+            this.slots.acquire(SLOTS_PER_THREAD * this.threads);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        synchronized (this) {
+            if (null != this.failure) {
+                throw this.failure;
+            }
+            this.out.flush();
+        }
+    }
+
+    private Runnable solver(final long id, final String tiles,
+                            final int maxNodes, final long timeLimit,
+                            final String[] command) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                // stays if an Error escapes, so that its slot is still freed
+                String result = "Failed with an internal error";
+                try {
+                    if (null == tiles) {
+                        result = "No state has been set for this puzzle";
+                    }
+                    else {
+                        result = tiles + ": "
+                            + solve(tiles, maxNodes, timeLimit, command);
+                    }
+                }
+                catch (IOException e) {
+                    result = e.getMessage();
+                }
+                catch (RuntimeException e) {
+                    result = "Invalid input";
+                }
+                finally {
+                    complete(id, result);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the layout of the tiles set last, or the 3x3 one if there are
+     * none or they are malformed
+     */
+    private static BoardLayout layoutOf(String tiles) {
+        if (null != tiles) {
+            try {
+                return BoardLayout.of(tiles);
+            }
+            catch (RuntimeException e) {
+                // scramble the standard board instead
+            }
+        }
+        return BoardLayout.STANDARD;
+    }
+
+    private SearchResult solve(String tiles, int maxNodes, long timeLimit,
+                               String[] command) throws IOException {
+        Puzzle puzzle = new Puzzle(tiles);
+        if (0 < maxNodes) {
+            puzzle.setMaxNodes(maxNodes);
+        }
+        puzzle.setTimeLimit(timeLimit);
+        puzzle.setCache(this.cache);
+        return puzzle.solve(command[1].toLowerCase(),
+            (2 < command.length) ? command[2].toLowerCase() : "",
+            (3 < command.length) ? Integer.parseInt(command[3]) : 1);
+    }
+
+    /**
+     * Files the output of a command, null if it has none, and writes every
+     * output that is now next in line
+     */
+    private synchronized void complete(long id, String result) {
+        this.pending.put(id, result);
+        while (this.pending.containsKey(this.nextToWrite)) {
+            String line = this.pending.remove(this.nextToWrite++);
+            if (null != line && null == this.failure) {
+                try {
+                    this.out.write(line);
+                    this.out.write(System.lineSeparator());
+                }
+                catch (IOException e) {
+                    this.failure = e;
+                }
+            }
+            this.slots.release();
+        }
+    }
+}
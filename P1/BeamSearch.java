@@ -0,0 +1,349 @@
+/**
+ * BeamSearch
+ *
+ * Local beam search that keeps only the k best successors of each ply.
+ * Successors are ranked by h(n) in a BoundedHeap of width k, so a ply never
+ * holds more than k boards, and a set of every board already generated
+ * keeps the beam from walking back over old ground: a bitmap for the 3x3
+ * board, a HashStateSet for others. Ties in h(n) are broken by the board
+ * itself, so the beam is fully determined by k.
+ *
+ * With more than one thread, each ply is expanded by a ForkJoinPool. Every
+ * task keeps a local top-k of its share of the beam, and the local heaps
+ * are merged pairwise as the tasks join. The bitmap admits each unseen
+ * board exactly once whichever thread generates it, and keys are distinct,
+ * so the merged top-k is the same for any number of threads. Which parent
+ * got there first is not, so links are then found once the ply is chosen,
+ * as below, taking the lowest-indexed parent: the one a single thread
+ * expands first. The path is then the same for any number of threads too.
+ *
+ * Keys are h(n), then the board in its compact form, then the link to the
+ * parent, sized by the BoardLayout to fill 63 bits so that keys stay
+ * positive. For the path, each ply keeps one int per member: the index of
+ * its parent in the ply before, above the 2-bit code of the move from that
+ * parent. Boards are distinct within a ply, so this link can ride in the
+ * low bits of the key without changing the order. Beams too wide for the
+ * link to fit, and boards too large to leave room for one, find each
+ * member's parent instead, once the ply has been chosen, by looking up its
+ * neighbors among the ply before.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.14
+ */
+package P1;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BeamSearch {
+
+    /** Beam members expanded by one fork-join task without splitting **/
+    private static final int SPLIT_THRESHOLD = 64;
+
+    private final BoardLayout layout;
+    private final PuzzleState.Heuristic heuristic;
+    private final int k;
+    private final int maxNodes;
+    private final int threads;
+    private final int linkBits;
+    private final int hShift;
+    private final long boardMask;
+    private final long linkMask;
+    private final boolean linkInKeys;
+
+    private long[] beam;
+    private long[] lastBeam;
+    private int beamSize;
+    private ArrayList<int[]> links;
+    private StateTable lastIndexes;
+    private int nodeCounter;
+    private int plyCounter;
+    private StateSet visited;
+    private LongAdder generated;
+    private LongAdder admitted;
+    private SearchStats stats;
+    private CancellationToken token = new CancellationToken();
+    private boolean stopped;
+
+    /**
+     * Constructs a BeamSearch
+     * @param  layout     the shape of the boards searched
+     * @param  heuristic  the estimate used to rank successors
+     * @param  k          the beam width
+     * @param  maxNodes   the number of nodes to generate before giving up
+     */
+    public BeamSearch(BoardLayout layout, PuzzleState.Heuristic heuristic,
+                      int k, int maxNodes) {
+        this(layout, heuristic, k, maxNodes, 1);
+    }
+
+    /**
+     * Constructs a BeamSearch that expands each ply on several threads
+     * @param  layout     the shape of the boards searched
+     * @param  heuristic  the estimate used to rank successors
+     * @param  k          the beam width
+     * @param  maxNodes   the number of nodes to generate before giving up
+     * @param  threads    the number of threads expanding each ply
+     */
+    public BeamSearch(BoardLayout layout, PuzzleState.Heuristic heuristic,
+                      int k, int maxNodes, int threads) {
+        this.layout = layout;
+        this.heuristic = heuristic;
+        this.k = k;
+        this.maxNodes = maxNodes;
+        this.threads = threads;
+        int hBits = 32 - Integer.numberOfLeadingZeros(layout.getMaxEstimate());
+        this.linkBits = 63 - hBits - layout.getCompactBits();
+        this.hShift = this.linkBits + layout.getCompactBits();
+        this.boardMask = (1L << layout.getCompactBits()) - 1;
+        this.linkMask = (1L << this.linkBits) - 1;
+        // the widest beam whose links fit in a key
+        this.linkInKeys = 2 <= this.linkBits && 1L << (this.linkBits - 2) >= k;
+    }
+
+    /**
+     * Lets the token stop later runs
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Searches from the given solvable board until the goal is in the beam
+     * @param  start  the packed board to start from
+     * @return  true if the goal was reached within the node budget
+     */
+    public boolean run(long start) {
+        ForkJoinPool pool = (1 < this.threads) ? new ForkJoinPool(this.threads) : null;
+        try {
+            return run(start, pool);
+        }
+        finally {
+            if (null != pool) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private boolean run(long start, ForkJoinPool pool) {
+        BoundedHeap nextPly = new BoundedHeap(this.k);
+        this.visited = (BoardLayout.STANDARD == this.layout)
+            ? new StateBitmap() : new HashStateSet();
+        this.generated = new LongAdder();
+        this.admitted = new LongAdder();
+        this.stats = new SearchStats();
+        this.beam = new long[this.k];
+        this.lastBeam = new long[this.k];
+        this.links = new ArrayList<int[]>();
+        this.lastIndexes = (this.linkInKeys && null == pool)
+            ? null : new StateTable(this.k);
+        this.beam[0] = key(start);
+        this.beamSize = 1;
+        this.nodeCounter = 1;
+        this.plyCounter = 0;
+        this.stopped = false;
+        this.visited.add(start);
+        long unchecked = 0;
+
+        while (0 < this.beam[0] >>> this.hShift && this.nodeCounter < this.maxNodes) {
+            // a ply can be smaller than the interval, so expansions carry over
+            unchecked += this.beamSize;
+            if (CancellationToken.CHECK_INTERVAL <= unchecked) {
+                unchecked = 0;
+                if (this.token.shouldStop()) {
+                    this.stopped = true;
+                    break;
+                }
+            }
+            for (int i = 0; i < this.beamSize; i++) {
+                this.stats.expanded(this.plyCounter + (int) (this.beam[i] >>> this.hShift));
+            }
+            this.stats.openSize(this.beamSize);
+            if (null == pool) {
+                this.nodeCounter += expand(0, this.beamSize, nextPly, false);
+            }
+            else {
+                this.visited.reserve(4 * this.beamSize);
+                nextPly = pool.invoke(new ExpandTask(0, this.beamSize));
+                this.nodeCounter += (int) this.generated.sumThenReset();
+            }
+            if (nextPly.isEmpty()) {
+                // every successor has been seen before
+                recordTotals();
+                return false;
+            }
+            long[] last = this.beam;
+            int lastSize = this.beamSize;
+            this.beam = this.lastBeam;
+            this.lastBeam = last;
+            this.beamSize = nextPly.drainSorted(this.beam);
+            if (this.linkInKeys && null == pool) {
+                int[] plyLinks = new int[this.beamSize];
+                for (int i = 0; i < this.beamSize; i++) {
+                    plyLinks[i] = (int) (this.beam[i] & this.linkMask);
+                }
+                this.links.add(plyLinks);
+            }
+            else {
+                linkPly(last, lastSize);
+            }
+            this.plyCounter++;
+        }
+        recordTotals();
+        return 0 == this.beam[0] >>> this.hShift;
+    }
+
+    /**
+     * Records the parent and move of each member of the new ply by
+     * looking up its neighbors among the ply before, taking the one
+     * expanded first when several are there
+     * @param  last      the ply before
+     * @param  lastSize  the number of members of the ply before
+     */
+    private void linkPly(long[] last, int lastSize) {
+        this.lastIndexes.clear();
+        for (int i = 0; i < lastSize; i++) {
+            this.lastIndexes.put(boardOf(last[i]), i);
+        }
+        int[] plyLinks = new int[this.beamSize];
+        for (int i = 0; i < this.beamSize; i++) {
+            long board = boardOf(this.beam[i]);
+            int link = Integer.MAX_VALUE;
+            for (int move = 0; move < 4; move++) {
+                long parent = this.layout.move(board, move);
+                int index = (-1L == parent) ? -1 : this.lastIndexes.get(parent);
+                if (-1 != index) {
+                    link = Math.min(link, (index << 2) | PuzzleState.opposite(move));
+                }
+            }
+            plyLinks[i] = link;
+        }
+        this.links.add(plyLinks);
+    }
+
+    private void recordTotals() {
+        long stored = this.admitted.sum();
+        this.stats.generated(this.nodeCounter - 1);
+        this.stats.duplicates(this.nodeCounter - 1 - stored);
+        this.stats.setClosedSize(1 + stored);
+    }
+
+    /**
+     * Offers the unseen successors of part of the beam to a heap
+     * @return  the number of successors generated
+     */
+    private int expand(int from, int to, BoundedHeap out, boolean concurrent) {
+        int count = 0;
+        int unseen = 0;
+        for (int i = from; i < to; i++) {
+            long board = boardOf(this.beam[i]);
+            int h = (int) (this.beam[i] >>> this.hShift);
+            for (int move = 0; move < 4; move++) {
+                long child = this.layout.move(board, move);
+                if (-1L == child) {
+                    continue;
+                }
+                count++;
+                if (concurrent ? this.visited.addConcurrent(child)
+                               : this.visited.add(child)) {
+                    int childH = this.layout.estimateAfter(board, move, h, this.heuristic);
+                    long key = ((long) childH << this.hShift)
+                        | (this.layout.compact(child) << this.linkBits);
+                    out.offer(this.linkInKeys ? key | (i << 2) | move : key);
+                    unseen++;
+                }
+            }
+        }
+        this.admitted.add(unseen);
+        return count;
+    }
+
+    /** Expands a slice of the beam into a local top-k of its successors **/
+    private final class ExpandTask extends RecursiveTask<BoundedHeap> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        ExpandTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BoundedHeap compute() {
+            if (this.to - this.from <= SPLIT_THRESHOLD) {
+                BoundedHeap local =
+                    new BoundedHeap(Math.min(k, 4 * (this.to - this.from)));
+                generated.add(expand(this.from, this.to, local, true));
+                return local;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            ExpandTask left = new ExpandTask(this.from, middle);
+            left.fork();
+            BoundedHeap right = new ExpandTask(middle, this.to).compute();
+            BoundedHeap merged = new BoundedHeap(k);
+            merged.offerAll(left.join());
+            merged.offerAll(right);
+            return merged;
+        }
+    }
+
+    private long key(long board) {
+        return ((long) this.layout.estimate(board, this.heuristic) << this.hShift)
+            | (this.layout.compact(board) << this.linkBits);
+    }
+
+    private long boardOf(long key) {
+        return this.layout.restore((key >>> this.linkBits) & this.boardMask);
+    }
+
+    /**
+     * Returns true if the last run was stopped by its CancellationToken
+     */
+    public boolean isStopped() {
+        return this.stopped;
+    }
+
+    /**
+     * Returns the board with the lowest h(n) in the final beam
+     */
+    public long getBestBoard() {
+        return boardOf(this.beam[0]);
+    }
+
+    /**
+     * Returns the moves of the blank from the start to the best board of
+     * the final beam, found by following the links of each ply back
+     */
+    public PuzzleState.Move[] getPath() {
+        PuzzleState.Move[] all = PuzzleState.Move.values();
+        PuzzleState.Move[] path = new PuzzleState.Move[this.plyCounter];
+        int index = 0;
+        for (int ply = this.plyCounter - 1; 0 <= ply; ply--) {
+            int link = this.links.get(ply)[index];
+            path[ply] = all[link & 3];
+            index = link >>> 2;
+        }
+        return path;
+    }
+
+    public int getNodeCount() {
+        return this.nodeCounter;
+    }
+
+    /**
+     * Returns the counters of the last run; the open list is the beam and
+     * the closed set is the bitmap of boards generated
+     */
+    public SearchStats getStats() {
+        return this.stats;
+    }
+
+    public int getPlyCount() {
+        return this.plyCounter;
+    }
+}
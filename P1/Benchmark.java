@@ -0,0 +1,256 @@
+/**
+ * Benchmark
+ *
+ * Micro and macro benchmarks for the hot paths: building states, expanding
+ * them, both heuristics, the solvability test, scrambling, whole A*,
+ * bidirectional and beam solves, the 15-puzzle's moves, heuristic, IDA*
+ * and beam solves, and the 2x2 cube's turns, heuristic, and A*, IDA*, table
+ * and bidirectional solves. Every case runs for a number of warm-up
+ * iterations, whose results are thrown away so that the JIT has settled,
+ * and then for a number of measured iterations of fixed length.
+ * For each case it reports throughput, the average time of one operation
+ * and the bytes allocated by the benchmark thread, per operation and per
+ * second.
+ *
+ * Solves run over a seeded corpus of boards grouped by their optimal depth,
+ * so the same instances are measured on every run and on every machine.
+ *
+ *   java P1.Benchmark [name-filter] [iteration-ms]
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.24
+ */
+package P1;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class Benchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long SEED = 391;
+
+    /** Optimal depths of the solve corpus, and boards per depth **/
+    private static final int[] DEPTHS = { 8, 16, 20, 24 };
+    private static final int BOARDS_PER_DEPTH = 8;
+
+    /** Length of the random walks scrambling the 15-puzzle boards **/
+    private static final int FIFTEEN_WALK = 40;
+
+    /** One benchmarked operation; the result keeps the work from being elided **/
+    private interface Operation {
+        long run(int i) throws Exception;
+    }
+
+    private static final class Case {
+        final String name;
+        final Operation operation;
+
+        Case(String name, Operation operation) {
+            this.name = name;
+            this.operation = operation;
+        }
+    }
+
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private long sink;
+
+    public Benchmark(long iterationMillis) {
+        this.iterationNanos = iterationMillis * 1000000;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String filter = (0 < args.length) ? args[0] : "";
+        long millis = (1 < args.length) ? Long.parseLong(args[1]) : 1000;
+        Benchmark benchmark = new Benchmark(millis);
+        System.out.printf("%-24s %14s %14s %12s %12s%n",
+            "Benchmark", "ops/s", "us/op", "B/op", "MB/s");
+        for (Case c : cases()) {
+            if (c.name.contains(filter)) {
+                benchmark.measure(c);
+            }
+        }
+    }
+
+    private static ArrayList<Case> cases() throws IOException {
+        final String[] tiles = new String[1024];
+        final long[] boards = new long[tiles.length];
+        final InstanceGenerator generator = new InstanceGenerator(SEED);
+        for (int i = 0; i < tiles.length; i++) {
+            boards[i] = generator.uniform();
+            tiles[i] = PuzzleState.unpack(boards[i]);
+        }
+        final PuzzleState[] states = new PuzzleState[tiles.length];
+        for (int i = 0; i < tiles.length; i++) {
+            states[i] = new PuzzleState(tiles[i]);
+        }
+        final int mask = tiles.length - 1;
+
+        ArrayList<Case> cases = new ArrayList<Case>();
+        cases.add(new Case("state.construct",
+            i -> new PuzzleState(tiles[i & mask]).getBoard()));
+        cases.add(new Case("state.generateChildren",
+            i -> states[i & mask].generateChildren().size()));
+        cases.add(new Case("state.expand", new Operation() {
+            private final Successors out = new Successors();
+            @Override
+            public long run(int i) {
+                long board = boards[i & mask];
+                return PuzzleState.expand(board, PuzzleState.sumDistances(board),
+                    PuzzleState.Heuristic.SUM_DISTANCES, this.out);
+            }
+        }));
+        cases.add(new Case("heuristic.h1",
+            i -> PuzzleState.countMisplaced(boards[i & mask])));
+        cases.add(new Case("heuristic.h2",
+            i -> PuzzleState.sumDistances(boards[i & mask])));
+        cases.add(new Case("puzzle.isSolvable",
+            i -> Puzzle.isSolvable(tiles[i & mask]) ? 1 : 0));
+        cases.add(new Case("puzzle.scrambleGoal100", i -> {
+            Puzzle puzzle = new Puzzle();
+            puzzle.scrambleGoal(100, i);
+            return puzzle.getState().getBoard();
+        }));
+        cases.add(new Case("generator.uniform", i -> generator.uniform()));
+        cases.add(new Case("generator.walk100", i -> generator.walk(100)));
+        cases.add(new Case("generator.uniform1M", i ->
+            InstanceGenerator.uniform(1 << 20, i).sum()));
+
+        cases.add(new Case("cube.move",
+            i -> ECPuzzleState.move(i % ECPuzzleState.SIZE, i % ECPuzzleState.MOVES)));
+        cases.add(new Case("cube.h2",
+            i -> ECPuzzleState.sumDistances(i % ECPuzzleState.SIZE)));
+        cases.add(new Case("solve.cube.a-star.h2", i -> {
+            ECPuzzle cube = new ECPuzzle();
+            cube.scrambleGoal(100, i & mask);
+            cube.setMaxNodes(Integer.MAX_VALUE);
+            return cube.aStarSearch("h2").getSteps();
+        }));
+        cases.add(new Case("solve.cube.ida-star", i -> {
+            ECPuzzle cube = new ECPuzzle();
+            cube.scrambleGoal(100, i & mask);
+            cube.setMaxNodes(Integer.MAX_VALUE);
+            return cube.idaStarSearch().getSteps();
+        }));
+        cases.add(new Case("solve.cube.ida-star.nosym", i -> {
+            ECPuzzle cube = new ECPuzzle();
+            cube.scrambleGoal(100, i & mask);
+            ECIdaStarSearch search = new ECIdaStarSearch(Integer.MAX_VALUE, false);
+            search.run(cube.getState().getCube());
+            return search.getSteps();
+        }));
+        cases.add(new Case("solve.cube.table", i -> {
+            ECPuzzle cube = new ECPuzzle();
+            cube.scrambleGoal(100, i & mask);
+            return cube.tableSearch().getSteps();
+        }));
+        cases.add(new Case("solve.cube.bidirectional", i -> {
+            ECPuzzle cube = new ECPuzzle();
+            cube.scrambleGoal(100, i & mask);
+            cube.setMaxNodes(Integer.MAX_VALUE);
+            return cube.bidirectionalSearch().getSteps();
+        }));
+
+        final BoardLayout fifteen = BoardLayout.of(4, 4);
+        final long[] fifteens = new long[BOARDS_PER_DEPTH];
+        final InstanceGenerator walker = new InstanceGenerator(fifteen, SEED);
+        for (int i = 0; i < fifteens.length; i++) {
+            fifteens[i] = walker.walk(FIFTEEN_WALK);
+        }
+        cases.add(new Case("state15.move",
+            i -> fifteen.move(fifteens[i % fifteens.length], i & 3)));
+        cases.add(new Case("heuristic15.h2",
+            i -> fifteen.estimate(fifteens[i % fifteens.length],
+                                  PuzzleState.Heuristic.SUM_DISTANCES)));
+        cases.add(new Case("solve15.ida-star.h2",
+            i -> solver(fifteen, fifteens, i).idaStarSearch("h2").getSteps()));
+        cases.add(new Case("solve15.beam100",
+            i -> solver(fifteen, fifteens, i).beamSearch(100).getSteps()));
+
+        long[][] corpus = corpus();
+        for (int d = 0; d < DEPTHS.length; d++) {
+            final long[] group = corpus[d];
+            String depth = ".d" + DEPTHS[d];
+            cases.add(new Case("solve.a-star.h1" + depth,
+                i -> solver(group, i).aStarSearch("h1").getSteps()));
+            cases.add(new Case("solve.a-star.h2" + depth,
+                i -> solver(group, i).aStarSearch("h2").getSteps()));
+            cases.add(new Case("solve.bidirectional" + depth,
+                i -> solver(group, i).bidirectionalSearch().getSteps()));
+            for (final int k : new int[] { 1, 10, 100 }) {
+                cases.add(new Case("solve.beam" + k + depth,
+                    i -> solver(group, i).beamSearch(k).getSteps()));
+            }
+        }
+        return cases;
+    }
+
+    /**
+     * Returns BOARDS_PER_DEPTH boards for each of DEPTHS, drawn uniformly
+     * from the solvable boards with a fixed seed
+     */
+    private static long[][] corpus() throws IOException {
+        DistanceTable table = DistanceTable.getDefault();
+        long[][] corpus = new long[DEPTHS.length][BOARDS_PER_DEPTH];
+        int[] counts = new int[DEPTHS.length];
+        int remaining = DEPTHS.length * BOARDS_PER_DEPTH;
+        InstanceGenerator generator = new InstanceGenerator(SEED);
+        while (0 < remaining) {
+            long board = generator.uniform();
+            int d = Arrays.binarySearch(DEPTHS, table.distance(board));
+            if (0 <= d && BOARDS_PER_DEPTH > counts[d]) {
+                corpus[d][counts[d]++] = board;
+                remaining--;
+            }
+        }
+        return corpus;
+    }
+
+    private static Puzzle solver(long[] group, int i) {
+        return solver(BoardLayout.STANDARD, group, i);
+    }
+
+    private static Puzzle solver(BoardLayout layout, long[] group, int i) {
+        Puzzle puzzle = new Puzzle(layout.unpack(group[i % group.length]));
+        puzzle.setMaxNodes(Integer.MAX_VALUE);
+        return puzzle;
+    }
+
+    private void measure(Case c) throws Exception {
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iterate(c.operation);
+        }
+        long ops = 0;
+        long nanos = 0;
+        long startBytes = this.threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long startTime = System.nanoTime();
+            ops += iterate(c.operation);
+            nanos += System.nanoTime() - startTime;
+        }
+        long bytes = this.threads.getThreadAllocatedBytes(thread) - startBytes;
+        double seconds = nanos / 1e9;
+        System.out.printf("%-24s %14.1f %14.3f %12.1f %12.1f%n", c.name,
+            ops / seconds, nanos / 1e3 / ops, (double) bytes / ops,
+            bytes / seconds / (1 << 20));
+    }
+
+    /**
+     * Runs an operation until the iteration time is up
+     * @return  the number of operations run
+     */
+    private long iterate(Operation operation) throws Exception {
+        long deadline = System.nanoTime() + this.iterationNanos;
+        int i = 0;
+        do {
+            this.sink += operation.run(i++);
+        } while (System.nanoTime() < deadline);
+        return i;
+    }
+}
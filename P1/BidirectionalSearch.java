@@ -0,0 +1,219 @@
+/**
+ * BidirectionalSearch
+ *
+ * Breadth-first search from the start and from the goal at once, meeting in
+ * the middle. Each side keeps a StateTable from every board it has reached
+ * to the move that reached it, and the side with the smaller frontier
+ * expands one whole level at a time. Every move costs one and has an
+ * inverse, so the first board reached by both sides lies on a shortest
+ * path: no board was shared when the levels before were complete, and the
+ * new level is one deeper than all of them.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.31
+ */
+package P1;
+
+import java.util.Arrays;
+
+public class BidirectionalSearch {
+
+    /** Stored for the board each side starts from **/
+    private static final int ROOT = 4;
+
+    private final BoardLayout layout;
+    private final int maxNodes;
+
+    private StateTable forward;
+    private StateTable backward;
+    private long meeting;
+    private int nodeCounter;
+    private int levelCounter;
+    private int steps = -1;
+    private SearchStats stats;
+    private CancellationToken token = new CancellationToken();
+    private boolean stopped;
+
+    /**
+     * Constructs a BidirectionalSearch
+     * @param  layout    the shape of the boards searched
+     * @param  maxNodes  the number of nodes to generate before giving up
+     */
+    public BidirectionalSearch(BoardLayout layout, int maxNodes) {
+        this.layout = layout;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Lets the token stop later runs
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Searches for an optimal path from the given board to the goal
+     * @param  start  the packed board to start from
+     * @return  true if a path was found within the node budget
+     */
+    public boolean run(long start) {
+        this.forward = new StateTable();
+        this.backward = new StateTable();
+        this.forward.put(start, ROOT);
+        this.backward.put(this.layout.getGoal(), ROOT);
+        this.nodeCounter = 2;
+        this.levelCounter = 0;
+        this.steps = -1;
+        this.stats = new SearchStats();
+        this.stopped = false;
+        boolean found = search(start);
+        this.stats.setClosedSize(this.forward.size() + this.backward.size());
+        return found;
+    }
+
+    /**
+     * Expands levels until the two sides meet or one runs out
+     */
+    private boolean search(long start) {
+        if (this.layout.getGoal() == start) {
+            this.meeting = start;
+            this.steps = 0;
+            return true;
+        }
+
+        long[] forwardLevel = { start };
+        long[] backwardLevel = { this.layout.getGoal() };
+        int forwardSize = 1;
+        int backwardSize = 1;
+        int forwardDepth = 0;
+        int backwardDepth = 0;
+        while (0 < forwardSize && 0 < backwardSize) {
+            this.levelCounter++;
+            boolean fromStart = forwardSize <= backwardSize;
+            long[] level = fromStart ? forwardLevel : backwardLevel;
+            int size = fromStart ? forwardSize : backwardSize;
+            int depth = fromStart ? forwardDepth : backwardDepth;
+            StateTable own = fromStart ? this.forward : this.backward;
+            StateTable other = fromStart ? this.backward : this.forward;
+
+            long[] next = new long[Math.max(16, 2 * size)];
+            int nextSize = 0;
+            for (int i = 0; i < size; i++) {
+                long board = level[i];
+                this.stats.expanded(depth);
+                if (0 == (this.stats.getExpansions() & (CancellationToken.CHECK_INTERVAL - 1))
+                        && this.token.shouldStop()) {
+                    this.stopped = true;
+                    return false;
+                }
+                int lastMove = own.get(board);
+                for (int move = 0; move < 4; move++) {
+                    // never undo the move that led here
+                    if (PuzzleState.opposite(move) == lastMove) {
+                        continue;
+                    }
+                    long child = this.layout.move(board, move);
+                    if (-1L == child) {
+                        continue;
+                    }
+                    this.stats.generated(1);
+                    if (-1 != own.get(child)) {
+                        this.stats.duplicate();
+                        continue;
+                    }
+                    if (this.maxNodes < ++this.nodeCounter) {
+                        return false;
+                    }
+                    own.put(child, move);
+                    if (-1 != other.get(child)) {
+                        this.meeting = child;
+                        this.steps = forwardDepth + backwardDepth + 1;
+                        return true;
+                    }
+                    if (nextSize == next.length) {
+                        next = Arrays.copyOf(next, nextSize << 1);
+                    }
+                    next[nextSize++] = child;
+                }
+            }
+            this.stats.openSize(forwardSize + backwardSize + nextSize - size);
+            if (fromStart) {
+                forwardLevel = next;
+                forwardSize = nextSize;
+                forwardDepth++;
+            }
+            else {
+                backwardLevel = next;
+                backwardSize = nextSize;
+                backwardDepth++;
+            }
+        }
+        return false;
+    }
+
+    public int getNodeCount() {
+        return this.nodeCounter;
+    }
+
+    /**
+     * Returns the counters of the last run; the f(n) of a board is its
+     * depth on its own side
+     */
+    public SearchStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns true if the last run was stopped by its CancellationToken
+     */
+    public boolean isStopped() {
+        return this.stopped;
+    }
+
+    /**
+     * Returns the number of levels expanded by both sides together
+     */
+    public int getLevelCount() {
+        return this.levelCounter;
+    }
+
+    /**
+     * Returns the length of the path found, or -1
+     */
+    public int getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Returns the moves of the blank along the path found: back from the
+     * meeting board to the start, then on from it to the goal
+     */
+    public PuzzleState.Move[] getMoves() {
+        PuzzleState.Move[] all = PuzzleState.Move.values();
+        PuzzleState.Move[] path = new PuzzleState.Move[Math.max(this.steps, 0)];
+        if (0 > this.steps) {
+            return path;
+        }
+        int count = 0;
+        long board = this.meeting;
+        for (int move = this.forward.get(board); ROOT != move;
+                move = this.forward.get(board)) {
+            path[count++] = all[move];
+            board = this.layout.move(board, PuzzleState.opposite(move));
+        }
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            PuzzleState.Move swap = path[i];
+            path[i] = path[j];
+            path[j] = swap;
+        }
+        board = this.meeting;
+        for (int move = this.backward.get(board); ROOT != move;
+                move = this.backward.get(board)) {
+            // the goal side moved the other way
+            int back = PuzzleState.opposite(move);
+            path[count++] = all[back];
+            board = this.layout.move(board, back);
+        }
+        return path;
+    }
+}
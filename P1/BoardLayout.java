@@ -0,0 +1,460 @@
+/**
+ * BoardLayout
+ *
+ * The shape of a sliding-tile board, from 2x2 up to 16 cells, and the move
+ * and heuristic tables derived from it. Tiles are packed one per 4-bit
+ * nibble, cell 0 in the lowest nibble, with the blank as tile 0. A board of
+ * at most 15 cells caches the blank's cell in the nibble above the tiles,
+ * so the 3x3 board packs as it always has. A 16-cell board fills the long,
+ * and its blank is found as the one nibble that is zero.
+ *
+ * Tile strings give the rows in turn, separated by spaces, with b for the
+ * blank and 1-9 then A-F for the numbered tiles: "b12 345 678" or
+ * "b123 4567 89AB CDEF". In the goal, cell i holds tile i.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.11.1
+ */
+package P1;
+
+public final class BoardLayout {
+
+    /** The most cells whose tiles fit in a long **/
+    public static final int MAX_CELLS = 16;
+
+    private static final int MAX_SIDE = MAX_CELLS / 2;
+
+    /** Layouts are shared, so the tables of a shape are built once **/
+    private static final BoardLayout[] LAYOUTS =
+        new BoardLayout[(MAX_SIDE + 1) * (MAX_SIDE + 1)];
+
+    /** The 3x3 board of the 8-puzzle **/
+    public static final BoardLayout STANDARD = of(3, 3);
+
+    /** The low bit of every nibble **/
+    private static final long NIBBLE_LOW_BITS = 0x1111111111111111L;
+
+    private final int rows;
+    private final int width;
+    private final int size;
+    private final boolean cachesBlank;
+    private final int blankShift;
+    private final long tileMask;
+    private final long goal;
+
+    /** neighbors[4 * cell + move] is the cell the blank moves into, or -1 **/
+    private final int[] neighbors;
+
+    /**
+     * costs[heuristic][size * tile + cell] is what one tile sitting in one
+     * cell adds to h(n); the blank adds one to h1 when out of place, and
+     * nothing to h2
+     */
+    private final byte[][] costs;
+
+    /**
+     * deltas[heuristic][4 * (size * tile + cell) + move] is the change in
+     * h(n) when the blank moves into cell, sliding tile the opposite way,
+     * the blank's own cost included
+     */
+    private final byte[][] deltas;
+
+    private final int maxEstimate;
+
+    /**
+     * Compact boards keep the bits of the packed board if they fit beside
+     * h(n) and a link in a long, and otherwise the blank's cell above all
+     * but the last two numbered tiles in reading order
+     */
+    private final boolean compacts;
+    private final int compactBits;
+    private final int compactShift;
+
+    private BoardLayout(int rows, int width) {
+        this.rows = rows;
+        this.width = width;
+        this.size = rows * width;
+        this.cachesBlank = MAX_CELLS > this.size;
+        this.blankShift = 4 * this.size;
+        this.tileMask = this.cachesBlank ? (1L << this.blankShift) - 1 : -1L;
+        long goal = 0L;
+        for (int tile = 1; tile < this.size; tile++) {
+            goal |= (long) tile << (tile << 2);
+        }
+        this.goal = goal;
+
+        int heuristics = PuzzleState.Heuristic.values().length;
+        this.neighbors = new int[4 * this.size];
+        this.costs = new byte[heuristics][this.size * this.size];
+        this.deltas = new byte[heuristics][4 * this.size * this.size];
+        byte[] misplaced = this.costs[PuzzleState.Heuristic.COUNT_MISPLACED.ordinal()];
+        byte[] distances = this.costs[PuzzleState.Heuristic.SUM_DISTANCES.ordinal()];
+        for (int cell = 1; cell < this.size; cell++) {
+            misplaced[cell] = 1;
+        }
+        int maxEstimate = 0;
+        for (int tile = 1; tile < this.size; tile++) {
+            int worst = 0;
+            for (int cell = 0; cell < this.size; cell++) {
+                int xDist = Math.abs(tile % width - cell % width);
+                int yDist = Math.abs(tile / width - cell / width);
+                misplaced[this.size * tile + cell] = (byte) ((tile != cell) ? 1 : 0);
+                distances[this.size * tile + cell] = (byte) (xDist + yDist);
+                worst = Math.max(worst, xDist + yDist);
+            }
+            maxEstimate += worst;
+        }
+        // h1 is at most one per cell
+        this.maxEstimate = Math.max(maxEstimate, this.size);
+        for (int cell = 0; cell < this.size; cell++) {
+            int row = cell / width;
+            int col = cell % width;
+            this.neighbors[4 * cell + PuzzleState.Move.UP.ordinal()] =
+                (0 < row) ? cell - width : -1;
+            this.neighbors[4 * cell + PuzzleState.Move.DOWN.ordinal()] =
+                (row < rows - 1) ? cell + width : -1;
+            this.neighbors[4 * cell + PuzzleState.Move.LEFT.ordinal()] =
+                (0 < col) ? cell - 1 : -1;
+            this.neighbors[4 * cell + PuzzleState.Move.RIGHT.ordinal()] =
+                (col < width - 1) ? cell + 1 : -1;
+        }
+        for (int blank = 0; blank < this.size; blank++) {
+            for (int move = 0; move < 4; move++) {
+                int cell = this.neighbors[4 * blank + move];
+                if (0 > cell) {
+                    continue;
+                }
+                for (int h = 0; h < heuristics; h++) {
+                    int blankDelta = this.costs[h][cell] - this.costs[h][blank];
+                    for (int tile = 1; tile < this.size; tile++) {
+                        this.deltas[h][4 * (this.size * tile + cell) + move] = (byte)
+                            (this.costs[h][this.size * tile + blank]
+                             - this.costs[h][this.size * tile + cell] + blankDelta);
+                    }
+                }
+            }
+        }
+
+        int hBits = 32 - Integer.numberOfLeadingZeros(this.maxEstimate);
+        this.compacts = !this.cachesBlank || 61 < this.blankShift + 4 + hBits;
+        this.compactShift = 4 * (this.size - 3);
+        this.compactBits = this.compacts ? this.compactShift + 4
+                                         : this.blankShift + 4;
+    }
+
+    /**
+     * Returns the layout of a board with the given number of rows and
+     * columns
+     * @throws IllegalArgumentException  if either side is below 2 or the
+     *                                   board has more than MAX_CELLS cells
+     */
+    public static synchronized BoardLayout of(int rows, int width) {
+        if (2 > rows || 2 > width || MAX_CELLS < rows * width) {
+            throw new IllegalArgumentException(rows + "x" + width);
+        }
+        int i = (MAX_SIDE + 1) * rows + width;
+        if (null == LAYOUTS[i]) {
+            LAYOUTS[i] = new BoardLayout(rows, width);
+        }
+        return LAYOUTS[i];
+    }
+
+    /**
+     * Returns the layout a tile string describes
+     * @param  tiles  the tile arrangement in form "b12 345 678"
+     */
+    public static BoardLayout of(String tiles) {
+        PuzzleState.validateTileString(tiles);
+        int width = tiles.indexOf(' ');
+        return of((tiles.length() + 1) / (width + 1), width);
+    }
+
+    public int getRows() {
+        return this.rows;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the number of cells, the blank's included
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Returns the packed goal, where cell i holds tile i
+     */
+    public long getGoal() {
+        return this.goal;
+    }
+
+    /**
+     * Returns the highest h(n) any board can have under either heuristic
+     */
+    public int getMaxEstimate() {
+        return this.maxEstimate;
+    }
+
+    @Override
+    public String toString() {
+        return this.rows + "x" + this.width;
+    }
+
+    /**
+     * Returns the tile a character names, or -1
+     */
+    static int tileOf(char c) {
+        if ('b' == c) {
+            return 0;
+        }
+        else if ('A' <= c && c <= 'F') {
+            return 10 + c - 'A';
+        }
+        return ('0' <= c && c <= '9') ? c - '0' : -1;
+    }
+
+    private static char charOf(int tile) {
+        if (0 == tile) {
+            return 'b';
+        }
+        return (char) ((10 > tile) ? '0' + tile : 'A' + tile - 10);
+    }
+
+    /**
+     * Returns the cell of the blank in a packed board
+     */
+    public int blankOf(long board) {
+        if (this.cachesBlank) {
+            return (int) (board >>> this.blankShift);
+        }
+        // fold each nibble into its low bit, which stays clear only for
+        // the blank
+        long folded = board | (board >>> 1);
+        folded |= folded >>> 2;
+        return Long.numberOfTrailingZeros(~folded & NIBBLE_LOW_BITS) >>> 2;
+    }
+
+    /**
+     * Returns the board reached by sliding the blank one cell in the given
+     * direction, or -1 if the blank is against that edge
+     */
+    public long move(long board, int move) {
+        int blank = blankOf(board);
+        int target = this.neighbors[4 * blank + move];
+        if (0 > target) {
+            return -1L;
+        }
+        long tile = (board >>> (target << 2)) & 0xF;
+        // the blank nibble is zero, so the tile can simply be added there
+        long moved = (board & this.tileMask & ~(0xFL << (target << 2)))
+            | (tile << (blank << 2));
+        return this.cachesBlank ? moved | ((long) target << this.blankShift)
+                                : moved;
+    }
+
+    /**
+     * Writes the successors of a packed board into a caller-owned buffer,
+     * in UP, DOWN, LEFT, RIGHT order, without allocating anything
+     * @param  board      the packed board
+     * @param  hVal       h(n) of the board
+     * @param  heuristic  the estimate hVal was calculated with
+     * @param  out        the buffer to fill
+     * @return  the number of successors written
+     */
+    public int expand(long board, int hVal, PuzzleState.Heuristic heuristic,
+                      Successors out) {
+        byte[] deltas = this.deltas[heuristic.ordinal()];
+        int blank = blankOf(board);
+        long cleared = board & this.tileMask;
+        int count = 0;
+        for (int move = 0; move < 4; move++) {
+            int cell = this.neighbors[4 * blank + move];
+            if (0 > cell) {
+                continue;
+            }
+            long tile = (board >>> (cell << 2)) & 0xF;
+            long child = (cleared & ~(0xFL << (cell << 2))) | (tile << (blank << 2));
+            out.boards[count] = this.cachesBlank
+                ? child | ((long) cell << this.blankShift) : child;
+            out.hVals[count] = (byte) (hVal + deltas[4 * (this.size * (int) tile + cell) + move]);
+            out.moves[count] = (byte) move;
+            count++;
+        }
+        out.size = count;
+        return count;
+    }
+
+    /**
+     * Returns h(n) of a packed board under the given heuristic
+     */
+    public int estimate(long board, PuzzleState.Heuristic heuristic) {
+        byte[] costs = this.costs[heuristic.ordinal()];
+        int estimate = 0;
+        for (int cell = 0; cell < this.size; cell++) {
+            estimate += costs[this.size * PuzzleState.tileAt(board, cell) + cell];
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns h(n) of the board reached by a legal move, given h(n) of the
+     * board before it, in O(1)
+     * @param  board      the packed board before the move
+     * @param  move       the move of the blank
+     * @param  hVal       h(n) of the board before the move
+     * @param  heuristic  the estimate hVal was calculated with
+     */
+    public int estimateAfter(long board, int move, int hVal,
+                             PuzzleState.Heuristic heuristic) {
+        int cell = this.neighbors[4 * blankOf(board) + move];
+        int tile = PuzzleState.tileAt(board, cell);
+        return hVal + this.deltas[heuristic.ordinal()][4 * (this.size * tile + cell) + move];
+    }
+
+    /**
+     * Returns true if the goal can be reached from a board. A move across a
+     * row carries a tile past width - 1 others, so on an odd width the
+     * inversions of the numbered tiles keep their parity; on an even width
+     * the parity flips with every change of the blank's row, and the sum of
+     * the two keeps it instead.
+     * @param  board  the packed board
+     */
+    public boolean isSolvable(long board) {
+        int seen = 0;
+        int inversions = 0;
+        for (int cell = 0; cell < this.size; cell++) {
+            int tile = PuzzleState.tileAt(board, cell);
+            if (0 != tile) {
+                // seen tiles larger than this one each form an inversion
+                inversions += Integer.bitCount(seen >>> tile);
+                seen |= 1 << tile;
+            }
+        }
+        if (0 == (this.width & 1)) {
+            inversions += blankOf(board) / this.width;
+        }
+        return 0 == (inversions & 1);
+    }
+
+    /**
+     * Packs a tile string into its 64-bit form
+     * @param  tiles  the tile arrangement in form "b12 345 678"
+     * @return the packed board
+     * @throws IllegalArgumentException  if the string is of another layout
+     */
+    public long pack(String tiles) {
+        if (this != of(tiles)) {
+            throw new IllegalArgumentException("Not a " + this + " board");
+        }
+        int[] cells = new int[this.size];
+        int cell = 0;
+        for (int i = 0; i < tiles.length(); i++) {
+            char c = tiles.charAt(i);
+            if (' ' != c) {
+                cells[cell++] = tileOf(c);
+            }
+        }
+        return pack(cells);
+    }
+
+    /**
+     * Packs an arrangement given as the tile in each cell
+     * @param  cells  a permutation of the tiles, the blank being 0
+     * @return the packed board
+     */
+    public long pack(int[] cells) {
+        long board = 0L;
+        for (int cell = 0; cell < this.size; cell++) {
+            if (0 == cells[cell]) {
+                if (this.cachesBlank) {
+                    board |= (long) cell << this.blankShift;
+                }
+            }
+            else {
+                board |= (long) cells[cell] << (cell << 2);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Unpacks a board into its String form
+     * @param  board  the packed board
+     * @return the tile arrangement in form "b12 345 678"
+     */
+    public String unpack(long board) {
+        StringBuilder sb = new StringBuilder(this.size + this.rows - 1);
+        for (int cell = 0; cell < this.size; cell++) {
+            if (0 < cell && 0 == cell % this.width) {
+                sb.append(' ');
+            }
+            sb.append(charOf(PuzzleState.tileAt(board, cell)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the number of bits in a compact board
+     */
+    public int getCompactBits() {
+        return this.compactBits;
+    }
+
+    /**
+     * Returns a solvable board in getCompactBits() bits, for keys that must
+     * hold h(n) beside the board
+     */
+    public long compact(long board) {
+        if (!this.compacts) {
+            return board;
+        }
+        int blank = blankOf(board);
+        long tiles = board & this.tileMask;
+        // close the gap the blank leaves in the reading order
+        long below = tiles & ((1L << (blank << 2)) - 1);
+        long above = (tiles >>> (blank << 2) >>> 4) << (blank << 2);
+        long numbered = (below | above) & ((1L << this.compactShift) - 1);
+        return ((long) blank << this.compactShift) | numbered;
+    }
+
+    /**
+     * Returns the board a compact board was made from. The two numbered
+     * tiles left out are the two not seen, and only one of their two
+     * orders is solvable.
+     */
+    public long restore(long compact) {
+        if (!this.compacts) {
+            return compact;
+        }
+        int blank = (int) (compact >>> this.compactShift);
+        long numbered = compact & ((1L << this.compactShift) - 1);
+        int seen = 1;
+        for (int i = 0; i < this.size - 3; i++) {
+            seen |= 1 << ((numbered >>> (i << 2)) & 0xF);
+        }
+        int missing = ~seen & ((1 << this.size) - 1);
+        long first = Integer.numberOfTrailingZeros(missing);
+        long second = Integer.numberOfTrailingZeros(missing & (missing - 1));
+        long board = place(blank, numbered | (first << this.compactShift)
+                                  | (second << (this.compactShift + 4)));
+        if (!isSolvable(board)) {
+            board = place(blank, numbered | (second << this.compactShift)
+                                 | (first << (this.compactShift + 4)));
+        }
+        return board;
+    }
+
+    /**
+     * Spreads the numbered tiles in reading order around the blank's cell
+     */
+    private long place(int blank, long numbered) {
+        long below = numbered & ((1L << (blank << 2)) - 1);
+        long above = (numbered >>> (blank << 2)) << (blank << 2) << 4;
+        long board = below | above;
+        return this.cachesBlank ? board | ((long) blank << this.blankShift)
+                                : board;
+    }
+}
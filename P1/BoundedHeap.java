@@ -0,0 +1,100 @@
+/**
+ * BoundedHeap
+ *
+ * Keeps the k smallest of a stream of long keys in a fixed-size binary
+ * max-heap. The root is the largest key kept, so a key that would not make
+ * the cut is rejected with a single comparison.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.14
+ */
+package P1;
+
+import java.util.Arrays;
+
+public class BoundedHeap {
+
+    private final long[] heap;
+    private int size = 0;
+
+    /**
+     * Constructs a BoundedHeap
+     * @param  capacity  the number of keys to keep
+     */
+    public BoundedHeap(int capacity) {
+        this.heap = new long[capacity];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return 0 == this.size;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Keeps a key if it is among the smallest seen since the last clear
+     */
+    public void offer(long key) {
+        if (this.size < this.heap.length) {
+            int slot = this.size++;
+            while (0 < slot) {
+                int parent = (slot - 1) >>> 1;
+                if (this.heap[parent] >= key) {
+                    break;
+                }
+                this.heap[slot] = this.heap[parent];
+                slot = parent;
+            }
+            this.heap[slot] = key;
+        }
+        else if (key < this.heap[0]) {
+            siftDown(key);
+        }
+    }
+
+    /**
+     * Offers every key kept by another heap
+     */
+    public void offerAll(BoundedHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.heap[i]);
+        }
+    }
+
+    /**
+     * Copies the kept keys into an array in ascending order and clears the
+     * heap
+     * @param  out  an array with room for every kept key
+     * @return  the number of keys copied
+     */
+    public int drainSorted(long[] out) {
+        int count = this.size;
+        System.arraycopy(this.heap, 0, out, 0, count);
+        Arrays.sort(out, 0, count);
+        this.size = 0;
+        return count;
+    }
+
+    private void siftDown(long key) {
+        int slot = 0;
+        int half = this.size >>> 1;
+        while (slot < half) {
+            int child = (slot << 1) + 1;
+            if (child + 1 < this.size && this.heap[child + 1] > this.heap[child]) {
+                child++;
+            }
+            if (key >= this.heap[child]) {
+                break;
+            }
+            this.heap[slot] = this.heap[child];
+            slot = child;
+        }
+        this.heap[slot] = key;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * BucketQueue
+ *
+ * A Frontier for unit-cost searches, where f(n) is a small integer. Node ids
+ * are kept in an array of buckets, one per key, each a doubly linked list
+ * threaded through per-id arrays. A pointer to the lowest non-empty bucket
+ * only moves forward between pops, so adding, moving and removing a node
+ * are all O(1) amortized.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.5
+ */
+package P1;
+
+import java.util.Arrays;
+
+public class BucketQueue implements Frontier {
+
+    /** How nodes with the same f(n) are ordered **/
+    public enum TieBreak { LIFO, HIGH_G };
+
+    /** h(n) is a byte, so this many sub-buckets cover every f(n) **/
+    private static final int H_SPAN = 128;
+
+    private final TieBreak tieBreak;
+
+    /** head[key] is the most recently added id with that key, or -1 **/
+    private int[] head;
+    private int[] next;
+    private int[] prev;
+    /** bucket[id] is the key of the bucket holding id, or -1 **/
+    private int[] bucket;
+    private int minKey = Integer.MAX_VALUE;
+    private int size = 0;
+
+    public BucketQueue() {
+        this(TieBreak.HIGH_G);
+    }
+
+    public BucketQueue(TieBreak tieBreak) {
+        this.tieBreak = tieBreak;
+        this.head = new int[(TieBreak.HIGH_G == tieBreak) ? 64 * H_SPAN : 64];
+        this.next = new int[1024];
+        this.prev = new int[1024];
+        this.bucket = new int[1024];
+        Arrays.fill(this.head, -1);
+        Arrays.fill(this.bucket, -1);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return 0 == this.size;
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return id < this.bucket.length && 0 <= this.bucket[id];
+    }
+
+    @Override
+    public void add(int id, int f, int g) {
+        if (id >= this.bucket.length) {
+            int oldLength = this.bucket.length;
+            int newLength = Math.max(oldLength << 1, id + 1);
+            this.next = Arrays.copyOf(this.next, newLength);
+            this.prev = Arrays.copyOf(this.prev, newLength);
+            this.bucket = Arrays.copyOf(this.bucket, newLength);
+            Arrays.fill(this.bucket, oldLength, newLength, -1);
+        }
+        link(id, key(f, g));
+        this.size++;
+    }
+
+    @Override
+    public void decreaseKey(int id, int f, int g) {
+        unlink(id);
+        link(id, key(f, g));
+    }
+
+    @Override
+    public int poll() {
+        while (-1 == this.head[this.minKey]) {
+            this.minKey++;
+        }
+        int id = this.head[this.minKey];
+        unlink(id);
+        this.size--;
+        if (0 == this.size) {
+            this.minKey = Integer.MAX_VALUE;
+        }
+        return id;
+    }
+
+    /**
+     * With HIGH_G each f(n) is split by h(n) = f(n) - g(n), so that among
+     * equal f(n) the node deepest in the search comes out first
+     */
+    private int key(int f, int g) {
+        if (TieBreak.HIGH_G == this.tieBreak) {
+            return f * H_SPAN + (f - g);
+        }
+        return f;
+    }
+
+    private void link(int id, int key) {
+        if (key >= this.head.length) {
+            int oldLength = this.head.length;
+            this.head = Arrays.copyOf(this.head, Math.max(oldLength << 1, key + 1));
+            Arrays.fill(this.head, oldLength, this.head.length, -1);
+        }
+        int first = this.head[key];
+        this.next[id] = first;
+        this.prev[id] = -1;
+        if (-1 != first) {
+            this.prev[first] = id;
+        }
+        this.head[key] = id;
+        this.bucket[id] = key;
+        if (key < this.minKey) {
+            this.minKey = key;
+        }
+    }
+
+    private void unlink(int id) {
+        int key = this.bucket[id];
+        int before = this.prev[id];
+        int after = this.next[id];
+        if (-1 == before) {
+            this.head[key] = after;
+        }
+        else {
+            this.next[before] = after;
+        }
+        if (-1 != after) {
+            this.prev[after] = before;
+        }
+        this.bucket[id] = -1;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * CancellationToken
+ *
+ * Tells a running search to stop, either because another thread called
+ * cancel() or because its deadline has passed. Searches poll the token
+ * every CHECK_INTERVAL expansions, so a stop takes effect within a few
+ * hundred microseconds and polling costs nothing measurable.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.26
+ */
+package P1;
+
+public class CancellationToken {
+
+    /** Expansions between polls, a power of two **/
+    public static final int CHECK_INTERVAL = 1024;
+
+    private final CancellationToken linked;
+    private final long deadline;
+    private final boolean hasDeadline;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Constructs a CancellationToken with no deadline
+     */
+    public CancellationToken() {
+        this(0, null);
+    }
+
+    /**
+     * Constructs a CancellationToken whose deadline is a time limit from now
+     * and that is also cancelled whenever another token is
+     * @param  timeLimitMillis  the time limit, or 0 for none
+     * @param  linked           the other token, or null
+     */
+    public CancellationToken(long timeLimitMillis, CancellationToken linked) {
+        this.linked = linked;
+        this.hasDeadline = 0 < timeLimitMillis;
+        this.deadline = System.nanoTime() + timeLimitMillis * 1000000;
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled || (null != this.linked && this.linked.isCancelled());
+    }
+
+    public boolean isTimedOut() {
+        return this.hasDeadline && 0 < System.nanoTime() - this.deadline;
+    }
+
+    /**
+     * Returns true if the search should stop for either reason
+     */
+    public boolean shouldStop() {
+        return isCancelled() || isTimedOut();
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * DistanceTable
+ *
+ * The optimal distance to the goal of every solvable board, one byte per
+ * board indexed by StateIndex.rank(). The table is built by a breadth-first
+ * sweep backward from the goal, saved to a file, and memory-mapped by later
+ * runs so that loading it costs almost nothing. The file ends in a CRC-32
+ * of the table and is written beside the real one, then moved over it, so
+ * a torn or corrupted file is rebuilt rather than trusted.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.9
+ */
+package P1;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public class DistanceTable {
+
+    public static final String DEFAULT_FILE = "eight-puzzle.dist";
+
+    /** Marks boards the sweep has not reached yet **/
+    private static final byte UNSEEN = -1;
+
+    /** The table, then its CRC-32 **/
+    private static final int FILE_BYTES = StateIndex.SIZE + 4;
+
+    private static DistanceTable defaultTable;
+
+    private final ByteBuffer distances;
+
+    private DistanceTable(ByteBuffer distances) {
+        this.distances = distances;
+    }
+
+    /**
+     * Returns the table stored in DEFAULT_FILE, building it on first use
+     */
+    public static synchronized DistanceTable getDefault() throws IOException {
+        if (null == defaultTable) {
+            defaultTable = load(new File(DEFAULT_FILE));
+        }
+        return defaultTable;
+    }
+
+    /**
+     * Maps the table stored in a file, building and saving it first if the
+     * file does not hold a complete table whose CRC-32 matches
+     * @param  file  where the table is kept
+     */
+    public static DistanceTable load(File file) throws IOException {
+        if (FILE_BYTES != file.length() || !isIntact(file)) {
+            save(build(), file);
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new DistanceTable(raf.getChannel().map(
+                FileChannel.MapMode.READ_ONLY, 0, StateIndex.SIZE));
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns true if the table in a file matches the CRC-32 after it
+     */
+    private static boolean isIntact(File file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), 0, StateIndex.SIZE);
+        return FILE_BYTES == bytes.capacity()
+            && (int) crc.getValue() == bytes.getInt(StateIndex.SIZE);
+    }
+
+    /**
+     * Writes the table and its CRC-32 to a temporary file beside the given
+     * one, then moves it into place in one step
+     */
+    private static void save(byte[] table, File file) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(table);
+        File temp = File.createTempFile(file.getName(), ".tmp",
+                                        file.getAbsoluteFile().getParentFile());
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(table);
+                out.write(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+                out.getChannel().force(true);
+            }
+            finally {
+                out.close();
+            }
+            Files.move(temp.toPath(), file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            // gone already once the move has succeeded
+            temp.delete();
+        }
+    }
+
+    /**
+     * Returns the distance of every solvable board, found by a breadth-first
+     * sweep from the goal. Moves are reversible, so the distance from the
+     * goal to a board is also the distance from the board to the goal.
+     */
+    public static byte[] build() {
+        byte[] table = new byte[StateIndex.SIZE];
+        Arrays.fill(table, UNSEEN);
+        int[] queue = new int[StateIndex.SIZE];
+        int head = 0;
+        int tail = 0;
+
+        int goal = StateIndex.rank(PuzzleState.GOAL);
+        table[goal] = 0;
+        queue[tail++] = goal;
+        while (head < tail) {
+            int rank = queue[head++];
+            long board = StateIndex.unrank(rank);
+            for (int move = 0; move < 4; move++) {
+                long child = PuzzleState.move(board, move);
+                if (-1L == child) {
+                    continue;
+                }
+                int childRank = StateIndex.rank(child);
+                if (UNSEEN == table[childRank]) {
+                    table[childRank] = (byte) (table[rank] + 1);
+                    queue[tail++] = childRank;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns the optimal number of moves from a solvable board to the goal
+     * @param  board  the packed board
+     */
+    public int distance(long board) {
+        return this.distances.get(StateIndex.rank(board));
+    }
+
+    /**
+     * Returns an optimal path from a solvable board to the goal, found by
+     * always moving to a neighbor one step closer
+     * @param  board  the packed board
+     * @return  the moves of the blank along the path
+     */
+    public PuzzleState.Move[] path(long board) {
+        int d = distance(board);
+        PuzzleState.Move[] path = new PuzzleState.Move[d];
+        for (int step = 0; step < path.length; step++, d--) {
+            for (PuzzleState.Move move : PuzzleState.Move.values()) {
+                long child = PuzzleState.move(board, move);
+                if (-1L != child && d - 1 == distance(child)) {
+                    path[step] = move;
+                    board = child;
+                    break;
+                }
+            }
+        }
+        return path;
+    }
+}
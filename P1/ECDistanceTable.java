@@ -0,0 +1,272 @@
+/**
+ * ECDistanceTable
+ *
+ * The optimal distance to the solved cube of every 2x2 state, kept as its
+ * remainder mod 3 in two bits per state, 900 KB in all. A turn changes the
+ * distance by at most one, so the three neighbors' remainders tell apart a
+ * neighbor one turn closer from one as close or one farther, and an optimal
+ * path is found by always turning toward a remainder one less: a lookup
+ * per turn tried, never more than 11 turns.
+ *
+ * The table is built by a breadth-first sweep from the solved cube, one
+ * level at a time, with each level split across a ForkJoinPool. A thread
+ * claims a state with a compare-and-set on its two bits, so each state
+ * joins the next level exactly once however the level is divided. The
+ * table is written to a temporary file that is then moved over the real
+ * one, so a run killed while saving never leaves a full-length file of
+ * zeros behind, and it is memory-mapped by later runs.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.29
+ */
+package P1;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ECDistanceTable {
+
+    public static final String DEFAULT_FILE = "cube.dist";
+
+    /** The most half turns any state needs **/
+    public static final int MAX_DEPTH = 11;
+
+    /** Two bits per state, 32 states to a long **/
+    private static final int WORDS = (ECPuzzleState.SIZE + 31) >>> 5;
+    private static final int BYTES = 8 * WORDS;
+
+    /** Marks states the sweep has not reached yet **/
+    private static final int UNSEEN = 3;
+
+    /** States expanded by one fork-join task without splitting **/
+    private static final int SPLIT_THRESHOLD = 4096;
+
+    private static final VarHandle CELLS =
+        MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static ECDistanceTable defaultTable;
+
+    /** The cells, little-endian, so state i is in byte i / 4 **/
+    private final ByteBuffer cells;
+
+    private ECDistanceTable(ByteBuffer cells) {
+        this.cells = cells;
+    }
+
+    /**
+     * Returns the table stored in DEFAULT_FILE, building it on first use
+     */
+    public static synchronized ECDistanceTable getDefault() throws IOException {
+        if (null == defaultTable) {
+            defaultTable = load(new File(DEFAULT_FILE));
+        }
+        return defaultTable;
+    }
+
+    /**
+     * Maps the table stored in a file, building it with every processor and
+     * saving it first if the file does not hold a complete table
+     * @param  file  where the table is kept
+     */
+    public static ECDistanceTable load(File file) throws IOException {
+        if (BYTES != file.length()) {
+            save(build(Runtime.getRuntime().availableProcessors()), file);
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new ECDistanceTable(raf.getChannel().map(
+                FileChannel.MapMode.READ_ONLY, 0, BYTES));
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes the table through a mapping of a temporary file beside the
+     * given one, then moves it into place in one step
+     */
+    private static void save(long[] words, File file) throws IOException {
+        File temp = File.createTempFile(file.getName(), ".tmp",
+                                        file.getAbsoluteFile().getParentFile());
+        try {
+            RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+            try {
+                raf.setLength(BYTES);
+                MappedByteBuffer buffer = raf.getChannel().map(
+                    FileChannel.MapMode.READ_WRITE, 0, BYTES);
+                buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(words);
+                buffer.force();
+            }
+            finally {
+                raf.close();
+            }
+            Files.move(temp.toPath(), file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            // gone already once the move has succeeded
+            temp.delete();
+        }
+    }
+
+    /**
+     * Returns the distance mod 3 of every state, 32 to a long, found by a
+     * breadth-first sweep from the solved cube. Every turn has an inverse
+     * turn, so the distance from the solved cube to a state is also the
+     * distance back.
+     * @param  threads  the number of threads expanding each level
+     */
+    public static long[] build(int threads) {
+        long[] words = new long[WORDS];
+        Arrays.fill(words, -1L);
+        int[] queue = new int[ECPuzzleState.SIZE];
+        AtomicInteger tail = new AtomicInteger();
+        claim(words, ECPuzzleState.GOAL, 0);
+        queue[tail.getAndIncrement()] = ECPuzzleState.GOAL;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            int head = 0;
+            for (int depth = 1; head < tail.get(); depth++) {
+                int end = tail.get();
+                pool.invoke(new LevelTask(words, queue, tail, head, end, depth % 3));
+                head = end;
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        return words;
+    }
+
+    /**
+     * Records a state's distance mod 3 if no thread has yet
+     * @return  true if this call recorded it
+     */
+    private static boolean claim(long[] words, int cube, int code) {
+        int word = cube >>> 5;
+        int shift = (cube & 31) << 1;
+        long old = (long) CELLS.getVolatile(words, word);
+        while (UNSEEN == ((old >>> shift) & 3)) {
+            long updated = (old & ~(3L << shift)) | ((long) code << shift);
+            if (CELLS.compareAndSet(words, word, old, updated)) {
+                return true;
+            }
+            old = (long) CELLS.getVolatile(words, word);
+        }
+        return false;
+    }
+
+    /** Expands a slice of one level, appending what it claims to the queue **/
+    private static final class LevelTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] words;
+        private final int[] queue;
+        private final AtomicInteger tail;
+        private final int from;
+        private final int to;
+        private final int code;
+
+        LevelTask(long[] words, int[] queue, AtomicInteger tail, int from,
+                  int to, int code) {
+            this.words = words;
+            this.queue = queue;
+            this.tail = tail;
+            this.from = from;
+            this.to = to;
+            this.code = code;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= SPLIT_THRESHOLD) {
+                int[] found = new int[ECPuzzleState.MOVES * (this.to - this.from)];
+                int count = 0;
+                for (int i = this.from; i < this.to; i++) {
+                    int cube = this.queue[i];
+                    for (int m = 0; m < ECPuzzleState.MOVES; m++) {
+                        int child = ECPuzzleState.move(cube, m);
+                        if (claim(this.words, child, this.code)) {
+                            found[count++] = child;
+                        }
+                    }
+                }
+                System.arraycopy(found, 0, this.queue,
+                                 this.tail.getAndAdd(count), count);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new LevelTask(this.words, this.queue, this.tail,
+                                    this.from, middle, this.code),
+                      new LevelTask(this.words, this.queue, this.tail,
+                                    middle, this.to, this.code));
+        }
+    }
+
+    /**
+     * Returns the optimal number of half turns from a state to the solved
+     * cube, mod 3
+     * @param  cube  the packed cube
+     */
+    public int distanceMod3(int cube) {
+        return (this.cells.get(cube >>> 2) >>> ((cube & 3) << 1)) & 3;
+    }
+
+    /**
+     * Returns the optimal number of half turns from a state to the solved
+     * cube
+     * @param  cube  the packed cube
+     */
+    public int distance(int cube) {
+        return path(cube).length;
+    }
+
+    /**
+     * Returns an optimal path from a state to the solved cube, found by
+     * always turning to a neighbor one turn closer
+     * @param  cube  the packed cube
+     * @return  the turns along the path
+     * @throws IllegalStateException  if the table leads nowhere, as only a
+     *                                damaged table can
+     */
+    public ECPuzzleState.Move[] path(int cube) {
+        ECPuzzleState.Move[] all = ECPuzzleState.Move.values();
+        ECPuzzleState.Move[] path = new ECPuzzleState.Move[MAX_DEPTH];
+        int steps = 0;
+        int code = distanceMod3(cube);
+        while (ECPuzzleState.GOAL != cube) {
+            int closer = (code + 2) % 3;
+            int next = -1;
+            for (int m = 0; m < ECPuzzleState.MOVES && -1 == next; m++) {
+                int child = ECPuzzleState.move(cube, m);
+                if (closer == distanceMod3(child)) {
+                    next = m;
+                }
+            }
+            if (-1 == next || MAX_DEPTH == steps) {
+                throw new IllegalStateException("The cube distance table is damaged");
+            }
+            path[steps++] = all[next];
+            cube = ECPuzzleState.move(cube, next);
+            code = closer;
+        }
+        return Arrays.copyOf(path, steps);
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * ECIdaStarSearch
+ *
+ * Optimal IDA* for the 2x2 cube in a few kilobytes. h(n) is the larger of
+ * two pruning tables, the exact distance of the corner permutation alone
+ * (5040 entries) and of the corner orientation alone (729 entries). Turning
+ * the face just turned is never tried; U, R and F share no opposite faces,
+ * so there are no commuting pairs to order.
+ *
+ * With symmetry, the search also carries the cube as seen through each of
+ * the ECPuzzleState symmetries. Each is solved in the same number of turns
+ * but lands on different permutations and orientations, so the largest of
+ * their table entries is still admissible and prunes far more. A turn of
+ * the cube is a turn of each image, found by table, and images are only
+ * turned until one of them prunes the child.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.30
+ */
+package P1;
+
+import java.util.Arrays;
+
+public class ECIdaStarSearch {
+
+    /** Returned by search() once the goal has been reached **/
+    private static final int FOUND = -1;
+
+    /** Returned by search() once the node budget or the time is up **/
+    private static final int ABORTED = -2;
+
+    private static final int NO_MOVE = -1;
+
+    /** The exact distance of each permutation and each orientation alone **/
+    private static final byte[] PERMUTATION_DEPTHS = depths(true);
+    private static final byte[] ORIENTATION_DEPTHS = depths(false);
+
+    private final int maxNodes;
+    private final int symmetries;
+
+    /** cubes[symmetries * g + s] is the cube at depth g seen through symmetry s **/
+    private final int[] cubes;
+    /** moveImages[MOVES * s + m] is turn m seen through symmetry s **/
+    private final int[] moveImages;
+    private final byte[] moves = new byte[ECDistanceTable.MAX_DEPTH];
+    private int nodeCounter;
+    private int iterationCounter;
+    private int steps = -1;
+    private SearchStats stats;
+    private CancellationToken token = new CancellationToken();
+    private boolean stopped;
+
+    /**
+     * Constructs an ECIdaStarSearch
+     * @param  maxNodes   the number of nodes to generate before giving up
+     * @param  symmetric  true to take h(n) over every symmetry of the cube
+     */
+    public ECIdaStarSearch(int maxNodes, boolean symmetric) {
+        this.maxNodes = maxNodes;
+        this.symmetries = symmetric ? ECPuzzleState.SYMMETRIES : 1;
+        this.cubes = new int[this.symmetries * (ECDistanceTable.MAX_DEPTH + 1)];
+        this.moveImages = new int[ECPuzzleState.MOVES * this.symmetries];
+        for (int s = 0; s < this.symmetries; s++) {
+            for (int m = 0; m < ECPuzzleState.MOVES; m++) {
+                this.moveImages[ECPuzzleState.MOVES * s + m] =
+                    ECPuzzleState.conjugateMove(m, s);
+            }
+        }
+    }
+
+    /**
+     * Lets the token stop later runs
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Returns the distance of every permutation, or every orientation, from
+     * the solved one, found by a breadth-first sweep
+     */
+    private static byte[] depths(boolean permutation) {
+        int size = permutation ? ECPuzzleState.PERMUTATIONS
+                               : ECPuzzleState.ORIENTATIONS;
+        byte[] depths = new byte[size];
+        Arrays.fill(depths, (byte) -1);
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        depths[0] = 0;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int coordinate = queue[head++];
+            for (int m = 0; m < ECPuzzleState.MOVES; m++) {
+                int next = permutation
+                    ? ECPuzzleState.movePermutation(coordinate, m)
+                    : ECPuzzleState.moveOrientation(coordinate, m);
+                if (-1 == depths[next]) {
+                    depths[next] = (byte) (depths[coordinate] + 1);
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return depths;
+    }
+
+    /**
+     * Searches for an optimal path from the given cube to the solved cube
+     * @param  start  the packed cube to start from
+     * @return  true if a path was found within the node budget
+     */
+    public boolean run(int start) {
+        for (int s = 0; s < this.symmetries; s++) {
+            this.cubes[s] = ECPuzzleState.conjugate(start, s);
+        }
+        this.nodeCounter = 1;
+        this.iterationCounter = 0;
+        this.steps = -1;
+        this.stats = new SearchStats();
+        this.stopped = false;
+
+        int h = 0;
+        for (int s = 0; s < this.symmetries; s++) {
+            h = Math.max(h, estimate(this.cubes[s]));
+        }
+        int bound = h;
+        while (true) {
+            this.iterationCounter++;
+            int t = search(0, h, bound, NO_MOVE);
+            if (FOUND == t) {
+                return true;
+            }
+            if (ABORTED == t || Integer.MAX_VALUE == t) {
+                return false;
+            }
+            bound = t;
+        }
+    }
+
+    /**
+     * Returns the larger table entry of one image
+     */
+    private static int estimate(int cube) {
+        int permutation = ECPuzzleState.permutationOf(cube);
+        int orientation = cube - permutation * ECPuzzleState.ORIENTATIONS;
+        return Math.max(PERMUTATION_DEPTHS[permutation],
+                        ORIENTATION_DEPTHS[orientation]);
+    }
+
+    /**
+     * Returns the lowest f(n) beyond the bound below the cube at depth g,
+     * or FOUND/ABORTED
+     */
+    private int search(int g, int h, int bound, int lastMove) {
+        int f = g + h;
+        if (f > bound) {
+            return f;
+        }
+        int base = this.symmetries * g;
+        if (ECPuzzleState.GOAL == this.cubes[base]) {
+            this.steps = g;
+            return FOUND;
+        }
+        this.stats.expanded(f);
+        this.stats.openSize(g + 1);
+        if (0 == (this.stats.getExpansions() & (CancellationToken.CHECK_INTERVAL - 1))
+                && this.token.shouldStop()) {
+            this.stopped = true;
+            return ABORTED;
+        }
+        int next = base + this.symmetries;
+        int min = Integer.MAX_VALUE;
+        for (int move = 0; move < ECPuzzleState.MOVES; move++) {
+            // two turns of one face are one turn or none
+            if (NO_MOVE != lastMove
+                    && ECPuzzleState.faceOf(move) == ECPuzzleState.faceOf(lastMove)) {
+                continue;
+            }
+            if (this.maxNodes < ++this.nodeCounter) {
+                return ABORTED;
+            }
+            this.stats.generated(1);
+            // turn the images one at a time, stopping at the first that
+            // prunes the child; the f(n) returned is then lower than the
+            // full estimate but still beyond the bound, so still safe
+            int childH = 0;
+            for (int s = 0; s < this.symmetries && g + 1 + childH <= bound; s++) {
+                int cube = ECPuzzleState.move(this.cubes[base + s],
+                    this.moveImages[ECPuzzleState.MOVES * s + move]);
+                this.cubes[next + s] = cube;
+                childH = Math.max(childH, estimate(cube));
+            }
+            this.moves[g] = (byte) move;
+            int t = search(g + 1, childH, bound, move);
+            if (0 > t) {
+                return t;
+            }
+            if (t < min) {
+                min = t;
+            }
+        }
+        return min;
+    }
+
+    public int getNodeCount() {
+        return this.nodeCounter;
+    }
+
+    /**
+     * Returns the counters of the last run; the open high-water mark is the
+     * deepest path held, since IDA* keeps no open list
+     */
+    public SearchStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns true if the last run was stopped by its CancellationToken
+     */
+    public boolean isStopped() {
+        return this.stopped;
+    }
+
+    public int getIterationCount() {
+        return this.iterationCounter;
+    }
+
+    /**
+     * Returns the length of the path found, or -1
+     */
+    public int getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Returns the turns along the path found
+     */
+    public ECPuzzleState.Move[] getMoves() {
+        ECPuzzleState.Move[] path = new ECPuzzleState.Move[Math.max(this.steps, 0)];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = ECPuzzleState.Move.values()[this.moves[i]];
+        }
+        return path;
+    }
+}
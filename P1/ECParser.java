@@ -19,11 +19,12 @@ import java.util.Scanner;
 public class ECParser {
     
     private enum Command {
-        SETSTATE, RANDOMIZESTATE, PRINTSTATE, SOLVE, MAXNODES
+        SETSTATE, RANDOMIZESTATE, PRINTSTATE, SOLVE, MAXNODES, TIMELIMIT
     }
     
     private ECPuzzle puzzle;
     private int maxNodes = -1;
+    private long timeLimit = 0;
     
     public static void main (String[] args) throws IOException, FileNotFoundException {
         ECParser p = new ECParser();
@@ -86,16 +87,15 @@ public class ECParser {
                 printState();
                 break;
             case SOLVE:
-                try {
-                    solve(command[1].toLowerCase(), command[2].toLowerCase());
-                }
-                catch (ArrayIndexOutOfBoundsException e) {
-                    solve(command[1].toLowerCase());
-                }
+                solve(command[1].toLowerCase(),
+                      (2 < command.length) ? command[2].toLowerCase() : "");
                 break;
             case MAXNODES:
                 maxNodes(command[1]);
                 break;
+            case TIMELIMIT:
+                timeLimit(command[1]);
+                break;
         }
     }
     
@@ -108,31 +108,49 @@ public class ECParser {
         }
     }
     
-    private void solve(String algorithm) {
+    private void solve(String algorithm, String option) {
         try {
             if (0 < maxNodes) {
                 this.puzzle.setMaxNodes(maxNodes);
             }
-            this.puzzle.aStarSearch();
+            this.puzzle.setTimeLimit(timeLimit);
+            System.out.println(this.puzzle.solve(algorithm, option));
+            printMoves(this.puzzle.getSolution());
+        }
+        catch (IOException e) {
+            System.err.println(e.getMessage());
         }
         catch (NullPointerException e) {
             System.err.println("No state has been set for this puzzle");
         }
     }
     
-    private void solve(String algorithm, String option) {
-        try {
-            if (0 < maxNodes) {
-                this.puzzle.setMaxNodes(maxNodes);
-            }
-            this.puzzle.beamSearch(Integer.parseInt(option));
+    /**
+     * Prints the turns of a solution in the usual cube notation
+     */
+    private void printMoves(ECPuzzleState.Move[] moves) {
+        if (null == moves || 0 == moves.length) {
+            return;
         }
-        catch (NullPointerException e) {
-            System.err.println("No state has been set for this puzzle");
+        StringBuilder sb = new StringBuilder("Moves:");
+        for (ECPuzzleState.Move move : moves) {
+            sb.append(' ').append(move);
         }
+        System.out.println(sb.toString());
     }
     
     private void maxNodes(String maxNodes) {
         this.maxNodes = Integer.parseInt(maxNodes);
     }
+    
+    /**
+     * Sets the time limit of each solve in milliseconds; 0 removes it
+     */
+    private void timeLimit(String millis) {
+        long limit = Long.parseLong(millis);
+        if (0 > limit) {
+            throw new IllegalArgumentException(millis);
+        }
+        this.timeLimit = limit;
+    }
 }
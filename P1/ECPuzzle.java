@@ -1,257 +1,515 @@
 /**
- * Puzzle
+ * ECPuzzle
+ *
+ * The 2x2x2 cube. Every state has a packed int below ECPuzzleState.SIZE,
+ * so the searches index plain arrays by state instead of hashing: A* keeps
+ * one byte of g(n) and one of the move that reached each state, and the
+ * path is rebuilt by undoing those moves from the goal. Neither search
+ * turns the face it has just turned, since any such pair of turns is one
+ * turn or none.
  *
  * @author   Kevin Nash (kjn33)
- * @version  2017.9.27
+ * @version  2017.10.28
  */
 package P1;
 
-import java.lang.Math;
-import java.lang.StringBuilder;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.PriorityQueue;
-import java.util.Random;
-
-public class Puzzle {
-    
-    private PuzzleState state;
+import java.util.SplittableRandom;
+
+public class ECPuzzle {
+
+    /**
+     * Beam keys are h(n), then the link to the parent, the index of the
+     * parent in the ply before above the 4-bit move, then the 22-bit cube
+     **/
+    private static final int CUBE_BITS = 22;
+    private static final int LINK_BITS = CUBE_BITS + 4;
+    private static final int H_SHIFT = CUBE_BITS + LINK_BITS;
+    private static final long CUBE_MASK = (1L << CUBE_BITS) - 1;
+    private static final long LINK_MASK = (1L << LINK_BITS) - 1;
+
+    /** The widest beam whose links fit in a key, more than every state **/
+    private static final int MAX_WIDTH = 1 << CUBE_BITS;
+
+    private static final byte NO_MOVE = -1;
+
+    /** Marks states one side of a bidirectional search has not reached **/
+    private static final byte UNSEEN = -2;
+
+    private ECPuzzleState state;
     private int maxNodes = 999999;
-    
-    public Puzzle() {
-        this("b12 345 678");
+    private long timeLimit = 0;
+    private CancellationToken cancellation;
+    private ECPuzzleState.Move[] solution;
+
+    public ECPuzzle() {
+        this("wwww rrrr bbbb oooo gggg yyyy");
     }
-    
-    public Puzzle(String state) {
-        this.state = new PuzzleState(state);
+
+    public ECPuzzle(String state) {
+        this.state = new ECPuzzleState(state);
     }
-    
-    public PuzzleState getState() {
+
+    public ECPuzzleState getState() {
         return this.state;
     }
 
     public void setMaxNodes(int n) {
         this.maxNodes = n;
     }
-    
+
+    /**
+     * Stops each search after a time limit, with a partial result
+     * @param  millis  the limit, or 0 for none
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis;
+    }
+
+    /**
+     * Lets another thread stop searches by cancelling a token
+     * @param  token  the token, or null
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.cancellation = token;
+    }
+
+    /**
+     * Returns a token for one search, whose deadline starts now
+     */
+    private CancellationToken newToken() {
+        return new CancellationToken(this.timeLimit, this.cancellation);
+    }
+
+    private static SearchResult.Status status(boolean solved, boolean stopped,
+                                              CancellationToken token) {
+        if (solved) {
+            return SearchResult.Status.SOLVED;
+        }
+        else if (!stopped) {
+            return SearchResult.Status.FAILED;
+        }
+        return token.isCancelled() ? SearchResult.Status.CANCELLED
+                                   : SearchResult.Status.TIMED_OUT;
+    }
+
+    /**
+     * Returns the turns found by the last search that solved the cube, or
+     * null if it failed
+     */
+    public ECPuzzleState.Move[] getSolution() {
+        return this.solution;
+    }
+
+    /**
+     * Sets the cube to the end of a random walk from the goal, seeded by the
+     * number of turns so that a script scrambles the same way each run
+     * @param  maxSteps  the number of turns to make
+     */
     public void scrambleGoal(int maxSteps) {
-        this.state = new PuzzleState("b12 345 678");
-        Random rand = new Random(maxSteps);
-        PriorityQueue<PuzzleState> children;
-        
+        scrambleGoal(maxSteps, maxSteps);
+    }
+
+    /**
+     * Sets the cube to the end of a seeded random walk from the goal that
+     * never turns the same face twice in a row
+     * @param  maxSteps  the number of turns to make
+     * @param  seed      the seed of the walk
+     */
+    public void scrambleGoal(int maxSteps, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int cube = ECPuzzleState.GOAL;
+        int last = NO_MOVE;
         for (int i = 0; i < maxSteps; i++) {
-            children = this.state.generateChildren();
-            int size = children.size();
-            for (int j = 0; j < (Math.abs(rand.nextInt()) % size) + 1; j++) {
-                this.state = children.poll();
-            }
+            int move;
+            do {
+                move = random.nextInt(ECPuzzleState.MOVES);
+            } while (sameFace(last, move));
+            cube = ECPuzzleState.move(cube, move);
+            last = move;
         }
-        this.state = new PuzzleState(this.state.getTiles(),
-                                     this.state.getHeuristic(), 0);
+        this.state = new ECPuzzleState(cube, this.state.getHeuristic());
     }
-    
-    public void moveUp() {
-        int emptyIndex = this.state.findEmptyTile();
-        if (!this.state.isTopRow(emptyIndex)) {
-            String tiles = this.state.swapTiles(this.state.getTiles(),
-                                                emptyIndex, emptyIndex - 4);
-            this.state = new PuzzleState(tiles, this.state.getHeuristic());
+
+    /**
+     * Turns one face of the cube
+     */
+    public void move(ECPuzzleState.Move move) {
+        this.state = new ECPuzzleState(
+            ECPuzzleState.move(this.state.getCube(), move.ordinal()),
+            this.state.getHeuristic());
+    }
+
+    private static ECPuzzleState.Heuristic parseHeuristic(String heuristic) {
+        if (heuristic.equals("h2")) {
+            return ECPuzzleState.Heuristic.SUM_DISTANCES;
         }
-        else {
-            throw new IndexOutOfBoundsException();
+        else if (heuristic.equals("h1")) {
+            return ECPuzzleState.Heuristic.COUNT_MISPLACED;
         }
+        return null;
     }
-    
-    public void moveDown() {
-        int emptyIndex = this.state.findEmptyTile();
-        if (!this.state.isBottomRow(emptyIndex)) {
-            String tiles = this.state.swapTiles(this.state.getTiles(),
-                                                emptyIndex, emptyIndex + 4);
-            this.state = new PuzzleState(tiles, this.state.getHeuristic());
+
+    /**
+     * Runs the named search
+     * @param  algorithm  "a-star", "ida-star", "beam", "table" or
+     *                    "bidirectional"
+     * @param  option     the heuristic for A*, or the beam width; A* with
+     *                    no heuristic runs IDA* on the pruning tables
+     */
+    public SearchResult solve(String algorithm, String option) throws IOException {
+        if (algorithm.equals("beam")) {
+            return beamSearch(Integer.parseInt(option));
         }
-        else {
-            throw new IndexOutOfBoundsException();
+        else if (algorithm.equals("ida-star")
+                 || (algorithm.equals("a-star") && option.isEmpty())) {
+            return idaStarSearch();
         }
-    }
-    
-    public void moveLeft() {
-        int emptyIndex = this.state.findEmptyTile();
-        if (!this.state.isLeftColumn(emptyIndex)) {
-            String tiles = this.state.swapTiles(this.state.getTiles(),
-                                                emptyIndex, emptyIndex - 1);
-            this.state = new PuzzleState(tiles, this.state.getHeuristic());
+        else if (algorithm.equals("a-star")) {
+            return aStarSearch(option);
         }
-        else {
-            throw new IndexOutOfBoundsException();
+        else if (algorithm.equals("table")) {
+            return tableSearch();
         }
-    }
-    
-    public void moveRight() {
-        int emptyIndex = this.state.findEmptyTile();
-        if (!this.state.isRightColumn(emptyIndex)) {
-            String tiles = this.state.swapTiles(this.state.getTiles(),
-                                                emptyIndex, emptyIndex + 1);
-            this.state = new PuzzleState(tiles, this.state.getHeuristic());
+        else if (algorithm.equals("bidirectional")) {
+            return bidirectionalSearch();
         }
-        else {
-            throw new IndexOutOfBoundsException();
+        throw new IllegalArgumentException(algorithm);
+    }
+
+    /**
+     * Solves optimally by walking down the ECDistanceTable, building the
+     * table first if no run has saved it yet
+     */
+    public SearchResult tableSearch() throws IOException {
+        ECDistanceTable table = ECDistanceTable.getDefault();
+        long startTime = System.nanoTime();
+        ECPuzzleState.Move[] path = table.path(this.state.getCube());
+        long endTime = System.nanoTime();
+
+        this.state = new ECPuzzleState(ECPuzzleState.GOAL, this.state.getHeuristic());
+        this.solution = path;
+        return new SearchResult(SearchResult.Status.SOLVED, ECPuzzleState.GOAL,
+            path.length + 1, null, path.length, null, endTime - startTime,
+            new SearchStats());
+    }
+
+    /**
+     * Solves optimally with ECIdaStarSearch, taking h(n) over every symmetry
+     */
+    public SearchResult idaStarSearch() {
+        ECIdaStarSearch search = new ECIdaStarSearch(this.maxNodes, true);
+        CancellationToken token = newToken();
+        search.setCancellationToken(token);
+        long startTime = System.nanoTime();
+        boolean solved = search.run(this.state.getCube());
+        long endTime = System.nanoTime();
+
+        if (solved) {
+            this.state = new ECPuzzleState(ECPuzzleState.GOAL, this.state.getHeuristic());
         }
+        this.solution = solved ? search.getMoves() : null;
+        return new SearchResult(status(solved, search.isStopped(), token),
+            this.state.getCube(), search.getNodeCount(),
+            search.getIterationCount() + " iteration(s)",
+            Math.max(search.getSteps(), 0), null, endTime - startTime,
+            search.getStats());
     }
-    
-    public void beamSearch(int k) {
-        int nodeCounter = 1;
-        int plyCounter = 0;
-        PriorityQueue<PuzzleState> beam =
-            new PriorityQueue<PuzzleState>(k, new Comparator<PuzzleState>() {
-            @Override
-            public int compare(PuzzleState ps1, PuzzleState ps2) {
-                return ps1.getHval() - ps2.getHval();
-            }
-        });
-        beam.add(this.state);
-        PriorityQueue<PuzzleState> nextPly = new PriorityQueue<PuzzleState>();
+
+    /**
+     * Solves optimally by breadth-first search from the cube and from the
+     * goal at once. Each side keeps the move that reached every state, and
+     * the side with the smaller frontier expands a whole level at a time, so
+     * the first state both reach lies on a shortest path.
+     */
+    public SearchResult bidirectionalSearch() {
+        int start = this.state.getCube();
+        int nodeCounter = 2;
+        byte[][] moves = { new byte[ECPuzzleState.SIZE],
+                           new byte[ECPuzzleState.SIZE] };
+        Arrays.fill(moves[0], UNSEEN);
+        Arrays.fill(moves[1], UNSEEN);
+        int[][] levels = { { start }, { ECPuzzleState.GOAL } };
+        int[] sizes = { 1, 1 };
+        int[] depths = { 0, 0 };
+        moves[0][start] = NO_MOVE;
+        moves[1][ECPuzzleState.GOAL] = NO_MOVE;
+        SearchStats stats = new SearchStats();
+        CancellationToken token = newToken();
+
+        int meeting = start;
+        boolean solved = ECPuzzleState.GOAL == start;
+        boolean stopped = false;
+        int levelCounter = 0;
         long startTime = System.nanoTime();
-        
-        while (0 < this.state.getHval() && nodeCounter < this.maxNodes) {
-            for (PuzzleState s1 : beam) {
-                PriorityQueue<PuzzleState> children = s1.generateChildren();
-                for (PuzzleState s2 : children) {
-                    nextPly.add(s2);
-                    nodeCounter++;
+        search:
+        while (!solved && 0 < sizes[0] && 0 < sizes[1]) {
+            levelCounter++;
+            int side = (sizes[0] <= sizes[1]) ? 0 : 1;
+            byte[] own = moves[side];
+            byte[] other = moves[1 - side];
+            int[] level = levels[side];
+            int size = sizes[side];
+            int[] next = new int[Math.max(16, 2 * size)];
+            int nextSize = 0;
+            for (int i = 0; i < size; i++) {
+                int cube = level[i];
+                stats.expanded(depths[side]);
+                if (0 == (stats.getExpansions() & (CancellationToken.CHECK_INTERVAL - 1))
+                        && token.shouldStop()) {
+                    stopped = true;
+                    break search;
+                }
+                for (int m = 0; m < ECPuzzleState.MOVES; m++) {
+                    if (sameFace(own[cube], m)) {
+                        continue;
+                    }
+                    int child = ECPuzzleState.move(cube, m);
+                    stats.generated(1);
+                    if (UNSEEN != own[child]) {
+                        stats.duplicate();
+                        continue;
+                    }
+                    if (maxNodes < ++nodeCounter) {
+                        break search;
+                    }
+                    own[child] = (byte) m;
+                    if (UNSEEN != other[child]) {
+                        meeting = child;
+                        solved = true;
+                        break search;
+                    }
+                    if (nextSize == next.length) {
+                        next = Arrays.copyOf(next, nextSize << 1);
+                    }
+                    next[nextSize++] = child;
                 }
             }
-            beam.clear();
-            for (int i = 0; i < k && !nextPly.isEmpty(); i++) {
-                beam.add(nextPly.poll());
-            }
-            this.state = beam.peek();
-            plyCounter++;
+            levels[side] = next;
+            sizes[side] = nextSize;
+            depths[side]++;
+            stats.openSize(sizes[0] + sizes[1]);
         }
-        
         long endTime = System.nanoTime();
-        String message;
-        if (0 == this.state.getHval()) {
-            message = "Solved with ";
-        }
-        else {
-            message = "Failed to solve after ";
+
+        int steps = 0;
+        this.solution = null;
+        if (solved) {
+            ECPuzzleState.Move[] all = ECPuzzleState.Move.values();
+            ArrayList<ECPuzzleState.Move> path = new ArrayList<ECPuzzleState.Move>();
+            for (int cube = meeting; NO_MOVE != moves[0][cube]; ) {
+                int move = moves[0][cube];
+                path.add(0, all[move]);
+                cube = ECPuzzleState.move(cube, ECPuzzleState.inverse(move));
+            }
+            // the goal side turned the other way
+            for (int cube = meeting; NO_MOVE != moves[1][cube]; ) {
+                int move = ECPuzzleState.inverse(moves[1][cube]);
+                path.add(all[move]);
+                cube = ECPuzzleState.move(cube, move);
+            }
+            steps = path.size();
+            this.solution = path.toArray(new ECPuzzleState.Move[steps]);
+            this.state = new ECPuzzleState(ECPuzzleState.GOAL, this.state.getHeuristic());
         }
-        long elapsedTime = (endTime - startTime) / 1000000;
-        message += nodeCounter + " node(s)";
-        message += ", " + plyCounter + " ply(s)";
-        message += ", " + this.state.getGval() + " step(s)";
-        message += ", " + elapsedTime + " ms elapsed";
-        System.out.println(message);
+        return new SearchResult(status(solved, stopped, token),
+            this.state.getCube(), nodeCounter, levelCounter + " level(s)",
+            steps, null, endTime - startTime, stats);
     }
-    
-    public void aStarSearch(String heuristic) {
-        if (heuristic.equals("h1")) {
-            this.state = new PuzzleState(this.state.getTiles(),
-                                         PuzzleState.Heuristic.COUNT_MISPLACED, 0);
-        } else if (heuristic.equals("h2")) {
-            this.state = new PuzzleState(this.state.getTiles(),
-                                         PuzzleState.Heuristic.SUM_DISTANCES, 0);
-        } else {
-            System.err.println("Invalid input");
-            return;
+
+    public SearchResult aStarSearch(String heuristic) {
+        ECPuzzleState.Heuristic h = parseHeuristic(heuristic);
+        if (null == h) {
+            throw new IllegalArgumentException(heuristic);
         }
+        int start = this.state.getCube();
         int nodeCounter = 1;
-        
-        PriorityQueue<PuzzleState> frontier = new PriorityQueue<PuzzleState>();
-        frontier.offer(new PuzzleState(this.state.getTiles(),
-                                       this.state.getHeuristic(),
-                                       this.state.getGval()));
-        PriorityQueue<PuzzleState> explored = new PriorityQueue<PuzzleState>();
-        
-        String message;
+
+        // states never generated have a g(n) of -1
+        byte[] gVals = new byte[ECPuzzleState.SIZE];
+        byte[] moves = new byte[ECPuzzleState.SIZE];
+        Arrays.fill(gVals, (byte) -1);
+        Frontier frontier = new BucketQueue(BucketQueue.TieBreak.HIGH_G);
+        gVals[start] = 0;
+        moves[start] = NO_MOVE;
+        frontier.add(start, ECPuzzleState.estimate(start, h), 0);
+        int discovered = 1;
+        SearchStats stats = new SearchStats();
+        CancellationToken token = newToken();
+
+        int current = start;
+        boolean solved;
+        boolean stopped = false;
         long startTime = System.nanoTime();
-        while (true) { // the textbook uses a true loop
-            if (0 == frontier.size() || maxNodes < nodeCounter) {
-                message = "Failed to solve after ";
+        while (true) {
+            if (frontier.isEmpty() || maxNodes < nodeCounter) {
+                solved = false;
                 break;
             }
-            this.state = frontier.poll();
-            if (0 == this.state.getHval()) {
-                message = "Solved with ";
+            current = frontier.poll();
+            if (ECPuzzleState.GOAL == current) {
+                solved = true;
                 break;
             }
-            explored.add(new PuzzleState(this.state.getTiles(),
-                                         this.state.getHeuristic(),
-                                         this.state.getGval()));
-            PriorityQueue<PuzzleState> children = this.state.generateChildren();
-            for (PuzzleState child : children) {
-                if (!explored.contains(child) && !frontier.contains(child)) {
-                    frontier.offer(new PuzzleState(child.getTiles(),
-                                                   child.getHeuristic(),
-                                                   child.getGval()));
-                    
+            int g = gVals[current] + 1;
+            stats.expanded(g - 1 + ECPuzzleState.estimate(current, h));
+            if (0 == (stats.getExpansions() & (CancellationToken.CHECK_INTERVAL - 1))
+                    && token.shouldStop()) {
+                solved = false;
+                stopped = true;
+                break;
+            }
+            int generated = 0;
+            for (int m = 0; m < ECPuzzleState.MOVES; m++) {
+                if (sameFace(moves[current], m)) {
+                    continue;
+                }
+                int child = ECPuzzleState.move(current, m);
+                if (-1 == gVals[child]) {
+                    gVals[child] = (byte) g;
+                    moves[child] = (byte) m;
+                    frontier.add(child, g + ECPuzzleState.estimate(child, h), g);
+                    discovered++;
                 }
-                else if (frontier.contains(child)) {
-                    PuzzleState[] temp = new PuzzleState[frontier.size()];
-                    temp = frontier.toArray(temp);
-                    for (PuzzleState ps : temp) {
-                        if (child.equals(ps) && child.getGval() < ps.getGval()) {
-                            frontier.remove(ps);
-                            frontier.offer(child);
-                        }
+                else {
+                    stats.duplicate();
+                    if (frontier.contains(child) && g < gVals[child]) {
+                        gVals[child] = (byte) g;
+                        moves[child] = (byte) m;
+                        frontier.decreaseKey(child,
+                            g + ECPuzzleState.estimate(child, h), g);
                     }
                 }
-                nodeCounter++;
+                generated++;
             }
+            nodeCounter += generated;
+            stats.generated(generated);
+            stats.openSize(frontier.size());
         }
         long endTime = System.nanoTime();
-        long elapsedTime = (endTime - startTime) / 1000000;
-        message += nodeCounter + " node(s)";
-        message += ", " + this.state.getGval() + " step(s)";
-        message += ", " + elapsedTime + " ms elapsed";
-        System.out.println(message);
-        this.state = new PuzzleState(this.state.getTiles(), this.state.getHeuristic(), 0);
+        this.state = new ECPuzzleState(current, h);
+        this.solution = solved ? path(current, moves, gVals[current]) : null;
+        stats.setClosedSize(discovered - frontier.size());
+        return new SearchResult(status(solved, stopped, token),
+            current, nodeCounter, null, gVals[current], null,
+            endTime - startTime, stats);
     }
-    
-    public static String generateRandomTileString() {
-        ArrayList<String> tiles = new ArrayList<String>(Arrays.asList(
-            "b","1","2","3","4","5","6","7","8"
-        ));
-        Collections.shuffle(tiles);
-        tiles.add(3, " ");
-        tiles.add(7, " ");
-        StringBuilder sb = new StringBuilder();
-        for (String s : tiles) {
-            sb.append(s);
-        }
-        if (!isSolvable(sb.toString())) {
-            return generateRandomTileString();
+
+    /**
+     * Rebuilds a path by undoing, from its end, the move that reached each
+     * state
+     */
+    private static ECPuzzleState.Move[] path(int cube, byte[] moves, int steps) {
+        ECPuzzleState.Move[] all = ECPuzzleState.Move.values();
+        ECPuzzleState.Move[] path = new ECPuzzleState.Move[steps];
+        for (int step = steps - 1; 0 <= step; step--) {
+            int move = moves[cube];
+            path[step] = all[move];
+            cube = ECPuzzleState.move(cube, ECPuzzleState.inverse(move));
         }
-        return sb.toString();
+        return path;
     }
-    
-    public static boolean isSolvable(String tiles) {
-        try {
-            PuzzleState.validateTileString(tiles);
-        } catch (Exception e) {
-            return false;
+
+    public SearchResult beamSearch(int k) {
+        if (1 > k || MAX_WIDTH < k) {
+            throw new IllegalArgumentException();
         }
-        tiles = tiles.replaceAll("b|\\s", "");
-        int inversions = 0;
-        for (int i = 0; i < tiles.length() - 1; i++) {
-            for (int j = i + 1; j < tiles.length(); j++) {
-                if (Character.getNumericValue(tiles.charAt(j)) <
-                    Character.getNumericValue(tiles.charAt(i))) {
-                    inversions++;
+        ECPuzzleState.Heuristic h = this.state.getHeuristic();
+        int start = this.state.getCube();
+        long[] visited = new long[(ECPuzzleState.SIZE + 63) >>> 6];
+        BoundedHeap nextPly = new BoundedHeap(k);
+        long[] beam = new long[k];
+        ArrayList<int[]> links = new ArrayList<int[]>();
+        beam[0] = key(ECPuzzleState.estimate(start, h), 0, start);
+        int beamSize = 1;
+        visited[start >>> 6] |= 1L << start;
+        int nodeCounter = 1;
+        int plyCounter = 0;
+        SearchStats stats = new SearchStats();
+        CancellationToken token = newToken();
+        boolean stopped = false;
+        long unchecked = 0;
+
+        long startTime = System.nanoTime();
+        while (0 < beam[0] >>> H_SHIFT && nodeCounter < maxNodes) {
+            // a ply can be smaller than the interval, so expansions carry over
+            unchecked += beamSize;
+            if (CancellationToken.CHECK_INTERVAL <= unchecked) {
+                unchecked = 0;
+                if (token.shouldStop()) {
+                    stopped = true;
+                    break;
+                }
+            }
+            stats.openSize(beamSize);
+            for (int i = 0; i < beamSize; i++) {
+                int cube = (int) (beam[i] & CUBE_MASK);
+                int last = (0 == plyCounter) ? NO_MOVE
+                    : links.get(plyCounter - 1)[i] & 15;
+                stats.expanded(plyCounter + (int) (beam[i] >>> H_SHIFT));
+                for (int m = 0; m < ECPuzzleState.MOVES; m++) {
+                    if (sameFace(last, m)) {
+                        continue;
+                    }
+                    int child = ECPuzzleState.move(cube, m);
+                    nodeCounter++;
+                    stats.generated(1);
+                    if (0 != (visited[child >>> 6] & (1L << child))) {
+                        stats.duplicate();
+                        continue;
+                    }
+                    visited[child >>> 6] |= 1L << child;
+                    nextPly.offer(key(ECPuzzleState.estimate(child, h),
+                                      (i << 4) | m, child));
                 }
             }
+            if (nextPly.isEmpty()) {
+                // every successor has been seen before
+                break;
+            }
+            beamSize = nextPly.drainSorted(beam);
+            int[] plyLinks = new int[beamSize];
+            for (int i = 0; i < beamSize; i++) {
+                plyLinks[i] = (int) ((beam[i] >>> CUBE_BITS) & LINK_MASK);
+            }
+            links.add(plyLinks);
+            plyCounter++;
         }
-        return (inversions % 2) == 0;
+        long endTime = System.nanoTime();
+
+        boolean solved = 0 == beam[0] >>> H_SHIFT;
+        int current = (int) (beam[0] & CUBE_MASK);
+        this.state = new ECPuzzleState(current, h);
+        this.solution = solved ? path(links) : null;
+        return new SearchResult(status(solved, stopped, token),
+            current, nodeCounter, plyCounter + " ply(s)", plyCounter, null,
+            endTime - startTime, stats);
+    }
+
+    private static long key(int h, int link, int cube) {
+        return ((long) h << H_SHIFT) | ((long) link << CUBE_BITS) | cube;
     }
-    
+
     /**
-     * Returns a String representation of the puzzle
-     * @return  puzzle String
+     * Rebuilds the path to the first member of the last ply by following
+     * the links of each ply back to the start
      */
-    @Override
-    public String toString() {
-        return this.state.toString();
+    private static ECPuzzleState.Move[] path(ArrayList<int[]> links) {
+        ECPuzzleState.Move[] all = ECPuzzleState.Move.values();
+        ECPuzzleState.Move[] path = new ECPuzzleState.Move[links.size()];
+        int index = 0;
+        for (int ply = links.size() - 1; 0 <= ply; ply--) {
+            int link = links.get(ply)[index];
+            path[ply] = all[link & 15];
+            index = link >>> 4;
+        }
+        return path;
+    }
+
+    private static boolean sameFace(int last, int move) {
+        return NO_MOVE != last
+            && ECPuzzleState.faceOf(last) == ECPuzzleState.faceOf(move);
     }
 }
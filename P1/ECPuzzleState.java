@@ -1,69 +1,268 @@
 /**
- * PuzzleState
+ * ECPuzzleState
+ *
+ * A state of the 2x2x2 cube. U, R and F turns never move the DBL corner,
+ * so a state is the arrangement of the other seven: which corner sits in
+ * each position, ranked 0-5039, and how each is twisted, 0-728, the last
+ * twist being fixed by the other six. The two are packed into one int,
+ * permutation * 729 + orientation, 3,674,160 states in all, with the solved
+ * cube at 0. Each of the nine turns is precomputed as a table on each of
+ * the two coordinates, so a move is a pair of array lookups.
+ *
+ * Facelets are numbered as in cube.png and written face by face in the
+ * order U L F R B D, one letter per color, so the solved cube is
+ * "wwww rrrr bbbb oooo gggg yyyy".
  *
  * @author   Kevin Nash (kjn33)
- * @version  2017.9.26
+ * @version  2017.10.28
  */
 package P1;
 
-import java.lang.Math;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.PriorityQueue;
 
-public class PuzzleState implements Comparable<PuzzleState> {
+public class ECPuzzleState {
 
     public enum Heuristic { COUNT_MISPLACED, SUM_DISTANCES };
 
-    /** The arrangement of the puzzle tiles **/
-    private String tiles;
+    /** Quarter turns clockwise, half turns and quarter turns back, per face **/
+    public enum Move {
+        U("U"), U2("U2"), U3("U'"),
+        R("R"), R2("R2"), R3("R'"),
+        F("F"), F2("F2"), F3("F'");
+
+        private final String notation;
+
+        Move(String notation) {
+            this.notation = notation;
+        }
+
+        @Override
+        public String toString() {
+            return this.notation;
+        }
+    };
+
+    public static final int CORNERS = 8;
+    public static final int PERMUTATIONS = 5040;
+    public static final int ORIENTATIONS = 729;
+    public static final int SIZE = PERMUTATIONS * ORIENTATIONS;
+    public static final int MOVES = 9;
 
-    private byte hVal = Byte.MAX_VALUE;
-    private int gVal = 0;
+    /** The packed form of the solved cube **/
+    public static final int GOAL = 0;
 
-    private Heuristic heuristic;
+    /** Every corner but DBL, which stays in the last position **/
+    private static final int MOVABLE = CORNERS - 1;
+
+    /** The color of each face, in the order U L F R B D **/
+    private static final String COLORS = "wrbogy";
 
     /**
-     * Constructs a PuzzleState given an arrangement of tiles
-     * @param  tiles      the tile arrangement in form "b12 345 678"
+     * FACELETS[position] are the facelets of a corner position, clockwise
+     * from the one on the U or D face. Positions, and the corners that
+     * belong in them, are URF, UFL, ULB, UBR, DFR, DLF, DRB and DBL.
      */
-    public PuzzleState(String tiles) {
-        this(tiles, Heuristic.SUM_DISTANCES);
-    }
-    
+    private static final int[][] FACELETS = {
+        { 3, 12, 9 }, { 2, 8, 5 }, { 0, 4, 17 }, { 1, 16, 13 },
+        { 21, 11, 14 }, { 20, 7, 10 }, { 23, 15, 18 }, { 22, 19, 6 }
+    };
+
     /**
-     * Constructs a PuzzleState given an arrangement of tiles
-     * @param  tiles      the tile arrangement in form "b12 345 678"
-     * @param  heuristic  TODO: describe
+     * The clockwise quarter turns of U, R and F: the position each corner
+     * comes from, and the twist it picks up on the way
      */
-    public PuzzleState(String tiles, Heuristic heuristic) {
-        validateTileString(tiles);
-        this.tiles = tiles;
-        this.heuristic = heuristic;
-        calculateHval();
+    private static final int[][] QUARTER_FROM = {
+        { 3, 0, 1, 2, 4, 5, 6, 7 },
+        { 4, 1, 2, 0, 6, 5, 3, 7 },
+        { 1, 5, 2, 3, 0, 4, 6, 7 }
+    };
+    private static final int[][] QUARTER_TWIST = {
+        { 0, 0, 0, 0, 0, 0, 0, 0 },
+        { 2, 0, 0, 1, 1, 0, 2, 0 },
+        { 1, 2, 0, 0, 2, 1, 0, 0 }
+    };
+
+    /** PERMUTATION_MOVES[MOVES * permutation + move] is the permutation after the move **/
+    private static final short[] PERMUTATION_MOVES = new short[MOVES * PERMUTATIONS];
+    /** ORIENTATION_MOVES[MOVES * orientation + move] is the orientation after the move **/
+    private static final short[] ORIENTATION_MOVES = new short[MOVES * ORIENTATIONS];
+
+    /** The corner in each movable position, for every permutation **/
+    private static final byte[] PERMUTATION_CORNERS = new byte[MOVABLE * PERMUTATIONS];
+    /** The twist of each movable position, for every orientation **/
+    private static final byte[] ORIENTATION_TWISTS = new byte[MOVABLE * ORIENTATIONS];
+
+    /**
+     * DISTANCES[3 * (MOVABLE * corner + position) + twist] is the fewest
+     * turns that bring one corner home from a position and twist
+     */
+    private static final byte[] DISTANCES = new byte[3 * MOVABLE * MOVABLE];
+
+    /**
+     * The symmetries that keep DBL in place, and so take U, R and F turns to
+     * U, R and F turns: the three rotations about the URF-DBL diagonal, each
+     * with and without a reflection. Symmetry 0 is the identity.
+     */
+    public static final int SYMMETRIES = 6;
+
+    /** Takes U to R, R to F and F to U, and D to L, L to B and B to D **/
+    private static final int[] FACE_ROTATION = { 3, 4, 0, 2, 5, 1 };
+    /** Swaps R with F and L with B **/
+    private static final int[] FACE_REFLECTION = { 0, 4, 3, 2, 1, 5 };
+
+    /** SYMMETRY_FACES[symmetry][face] is the face a symmetry takes a face to **/
+    private static final int[][] SYMMETRY_FACES = new int[SYMMETRIES][6];
+    /** SYMMETRY_FACELETS[symmetry][facelet] is the facelet it takes a facelet to **/
+    private static final int[][] SYMMETRY_FACELETS = new int[SYMMETRIES][24];
+    /** SYMMETRY_MOVES[MOVES * symmetry + move] is the turn it takes a turn to **/
+    private static final byte[] SYMMETRY_MOVES = new byte[MOVES * SYMMETRIES];
+
+    static {
+        int[][] from = new int[MOVES][];
+        int[][] twist = new int[MOVES][];
+        for (int face = 0; face < 3; face++) {
+            int[] f = { 0, 1, 2, 3, 4, 5, 6, 7 };
+            int[] t = new int[CORNERS];
+            for (int turns = 0; turns < 3; turns++) {
+                int[] nextFrom = new int[CORNERS];
+                int[] nextTwist = new int[CORNERS];
+                for (int i = 0; i < CORNERS; i++) {
+                    nextFrom[i] = f[QUARTER_FROM[face][i]];
+                    nextTwist[i] = (t[QUARTER_FROM[face][i]] + QUARTER_TWIST[face][i]) % 3;
+                }
+                f = nextFrom;
+                t = nextTwist;
+                from[3 * face + turns] = f;
+                twist[3 * face + turns] = t;
+            }
+        }
+
+        int[] values = new int[MOVABLE];
+        int[] moved = new int[MOVABLE];
+        for (int p = 0; p < PERMUTATIONS; p++) {
+            unrankPermutation(p, values);
+            for (int i = 0; i < MOVABLE; i++) {
+                PERMUTATION_CORNERS[MOVABLE * p + i] = (byte) values[i];
+            }
+            for (int m = 0; m < MOVES; m++) {
+                for (int i = 0; i < MOVABLE; i++) {
+                    moved[i] = values[from[m][i]];
+                }
+                PERMUTATION_MOVES[MOVES * p + m] = (short) rankPermutation(moved);
+            }
+        }
+        for (int o = 0; o < ORIENTATIONS; o++) {
+            unrankOrientation(o, values);
+            for (int i = 0; i < MOVABLE; i++) {
+                ORIENTATION_TWISTS[MOVABLE * o + i] = (byte) values[i];
+            }
+            for (int m = 0; m < MOVES; m++) {
+                for (int i = 0; i < MOVABLE; i++) {
+                    moved[i] = (values[from[m][i]] + twist[m][i]) % 3;
+                }
+                ORIENTATION_MOVES[MOVES * o + m] = (short) rankOrientation(moved);
+            }
+        }
+
+        // breadth-first from each corner's home, over the 21 places it can be
+        int[] queue = new int[3 * MOVABLE];
+        for (int corner = 0; corner < MOVABLE; corner++) {
+            int base = 3 * MOVABLE * corner;
+            Arrays.fill(DISTANCES, base, base + 3 * MOVABLE, (byte) -1);
+            DISTANCES[base + 3 * corner] = 0;
+            queue[0] = 3 * corner;
+            int head = 0;
+            int tail = 1;
+            while (head < tail) {
+                int place = queue[head++];
+                int position = place / 3;
+                for (int m = 0; m < MOVES; m++) {
+                    for (int q = 0; q < MOVABLE; q++) {
+                        if (position == from[m][q]) {
+                            int next = 3 * q + (place % 3 + twist[m][q]) % 3;
+                            if (-1 == DISTANCES[base + next]) {
+                                DISTANCES[base + next] =
+                                    (byte) (DISTANCES[base + place] + 1);
+                                queue[tail++] = next;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        // symmetry 2r + s rotates r times, then reflects s times
+        for (int sym = 0; sym < SYMMETRIES; sym++) {
+            for (int face = 0; face < 6; face++) {
+                int image = face;
+                for (int r = 0; r < sym / 2; r++) {
+                    image = FACE_ROTATION[image];
+                }
+                SYMMETRY_FACES[sym][face] = (1 == sym % 2) ? FACE_REFLECTION[image] : image;
+            }
+            // a facelet goes to the image of its face, on the corner whose
+            // faces are the images of its own corner's faces
+            for (int i = 0; i < CORNERS; i++) {
+                int faces = 0;
+                for (int n = 0; n < 3; n++) {
+                    faces |= 1 << SYMMETRY_FACES[sym][FACELETS[i][n] / 4];
+                }
+                int j = 0;
+                while (faces != ((1 << faceOf(j, 0)) | (1 << faceOf(j, 1)) | (1 << faceOf(j, 2)))) {
+                    j++;
+                }
+                for (int n = 0; n < 3; n++) {
+                    int image = SYMMETRY_FACES[sym][FACELETS[i][n] / 4];
+                    for (int k = 0; k < 3; k++) {
+                        if (image == faceOf(j, k)) {
+                            SYMMETRY_FACELETS[sym][FACELETS[i][n]] = FACELETS[j][k];
+                        }
+                    }
+                }
+            }
+            for (int m = 0; m < MOVES; m++) {
+                int image = conjugate(move(GOAL, m), sym);
+                for (int k = 0; k < MOVES; k++) {
+                    if (image == move(GOAL, k)) {
+                        SYMMETRY_MOVES[MOVES * sym + m] = (byte) k;
+                    }
+                }
+            }
+        }
     }
-    
+
+    /** The packed arrangement of the cube **/
+    private final int cube;
+    private final byte hVal;
+    private final Heuristic heuristic;
+
     /**
-     * Constructs a PuzzleState given an arrangement of tiles
-     * @param  tiles      the tile arrangement in form "b12 345 678"
-     * @param  heuristic  TODO: describe
+     * Constructs an ECPuzzleState given the colors of the facelets
+     * @param  facelets  the colors in form "wwww rrrr bbbb oooo gggg yyyy"
      */
-    public PuzzleState(String tiles, Heuristic heuristic, int gVal) {
-        validateTileString(tiles);
-        this.tiles = tiles;
-        this.heuristic = heuristic;
-        this.gVal = gVal;
-        calculateHval();
+    public ECPuzzleState(String facelets) {
+        this(facelets, Heuristic.SUM_DISTANCES);
+    }
+
+    public ECPuzzleState(String facelets, Heuristic heuristic) {
+        this(pack(facelets), heuristic);
     }
-    
+
     /**
-     * Returns f(n), the total cost of this state
-     * @return  fVal
+     * Constructs an ECPuzzleState from an already packed cube
+     * @param  cube       the packed cube
+     * @param  heuristic  the estimate used for h(n)
      */
-    public int getFval() {
-        return this.gVal + this.hVal;
+    public ECPuzzleState(int cube, Heuristic heuristic) {
+        this.cube = cube;
+        this.heuristic = heuristic;
+        this.hVal = (byte) estimate(cube, heuristic);
+    }
+
+    public int getCube() {
+        return this.cube;
     }
-    
+
     /**
      * Returns h(n), the predicted cost of this state
      * @return  hVal
@@ -71,188 +270,326 @@ public class PuzzleState implements Comparable<PuzzleState> {
     public byte getHval() {
         return this.hVal;
     }
-    
-    /**
-     * Returns g(n), the existing cost of this state
-     * @return  gVal
-     */
-    public int getGval() {
-        return this.gVal;
-    }
-    
-    public void setGval(int val) {
-        this.gVal = val;
-    }
 
-    public String getTiles() {
-        return this.tiles;
-    }
-    
     public Heuristic getHeuristic() {
         return this.heuristic;
     }
 
     /**
-     * Returns a String representation of the puzzle state
-     * @return  game String
+     * Returns a String representation of the cube's facelets
+     * @return  cube String
      */
     @Override
     public String toString() {
-        return this.tiles;
+        return unpack(this.cube);
     }
 
     @Override
-    public int compareTo(PuzzleState that) {
-        return (this.getGval() - that.getGval()) + (this.getHval() - that.getHval());
+    public boolean equals(Object obj) {
+        return obj instanceof ECPuzzleState && this.cube == ((ECPuzzleState) obj).cube;
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        try {
-            final PuzzleState that = (PuzzleState) obj;
-            return this.getTiles().equals(that.getTiles());
-        }
-        catch (Exception e) {
-            return false;
-        }
+    public int hashCode() {
+        return this.cube;
     }
 
     /**
-     * Returns a set of PuzzleStates that can be reached from this state
-     * @return  children of the state
+     * Returns the cube reached by a turn
+     * @param  cube  the packed cube
+     * @param  move  the ordinal of the turn
      */
-    public PriorityQueue<PuzzleState> generateChildren() {
-        PriorityQueue<PuzzleState> children = new PriorityQueue<PuzzleState>();
-        int emptyIndex = findEmptyTile();
-
-        // swap the empty tile with tiles orthoganal to it
-        if (!isLeftColumn(emptyIndex)) {
-            children.add(new PuzzleState(swapTiles(
-                tiles, emptyIndex, emptyIndex - 1),
-                this.heuristic, this.gVal + 1));
-        }
-        if (!isRightColumn(emptyIndex)) {
-            children.add(new PuzzleState(swapTiles(
-                tiles, emptyIndex, emptyIndex + 1),
-                this.heuristic, this.gVal + 1));
-        }
-        if (!isTopRow(emptyIndex)) {
-            children.add(new PuzzleState(swapTiles(
-                tiles, emptyIndex, emptyIndex - 4),
-                this.heuristic, this.gVal + 1));
-        }
-        if (!isBottomRow(emptyIndex)) {
-            children.add(new PuzzleState(swapTiles(
-                tiles, emptyIndex, emptyIndex + 4),
-                this.heuristic, this.gVal + 1));
-        }
-        return children;
-    }
-    
-    public int findEmptyTile() {
-        int emptyIndex = -1;
-        for (int i = 0; i < this.tiles.length(); i++) {
-            if ('b' == this.tiles.charAt(i)) {
-                emptyIndex = i;
-            }
+    public static int move(int cube, int move) {
+        int permutation = cube / ORIENTATIONS;
+        int orientation = cube - permutation * ORIENTATIONS;
+        return PERMUTATION_MOVES[MOVES * permutation + move] * ORIENTATIONS
+            + ORIENTATION_MOVES[MOVES * orientation + move];
+    }
+
+    public static int permutationOf(int cube) {
+        return cube / ORIENTATIONS;
+    }
+
+    public static int orientationOf(int cube) {
+        return cube % ORIENTATIONS;
+    }
+
+    /**
+     * Returns the permutation of the corners after a turn
+     */
+    public static int movePermutation(int permutation, int move) {
+        return PERMUTATION_MOVES[MOVES * permutation + move];
+    }
+
+    /**
+     * Returns the orientation of the corners after a turn
+     */
+    public static int moveOrientation(int orientation, int move) {
+        return ORIENTATION_MOVES[MOVES * orientation + move];
+    }
+
+    /**
+     * Returns the cube seen through a symmetry: the cube turned and perhaps
+     * mirrored, then recolored so that DBL is back home. It takes the same
+     * number of turns to solve.
+     * @param  cube      the packed cube
+     * @param  symmetry  the symmetry, 0 to SYMMETRIES - 1
+     */
+    public static int conjugate(int cube, int symmetry) {
+        int[] colors = colorsOf(cube);
+        int[] image = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            image[SYMMETRY_FACELETS[symmetry][i]] = SYMMETRY_FACES[symmetry][colors[i]];
         }
-        return emptyIndex;
+        return pack(image);
+    }
+
+    /**
+     * Returns the turn that a symmetry takes a turn to, so that turning a
+     * cube and then conjugating it is the same as conjugating it and then
+     * making the returned turn
+     */
+    public static int conjugateMove(int move, int symmetry) {
+        return SYMMETRY_MOVES[MOVES * symmetry + move];
     }
-    
+
+    /**
+     * Returns the turn that undoes the given one: the same face turned the
+     * other way, or a half turn again
+     */
+    public static int inverse(int move) {
+        int turns = move % 3;
+        return move - turns + (2 - turns);
+    }
+
     /**
-     * Throws an exception if the given tile string is not valid
+     * Returns the face a turn turns, 0-2
      */
-    public static void validateTileString(String tiles) {
-        class TileStringException extends RuntimeException {
-            TileStringException() {
-                super("The tile string is not in the correct format");
+    public static int faceOf(int move) {
+        return move / 3;
+    }
+
+    /**
+     * Returns h(n) of a packed cube
+     */
+    public static int estimate(int cube, Heuristic heuristic) {
+        return (Heuristic.COUNT_MISPLACED == heuristic)
+            ? countMisplaced(cube) : sumDistances(cube);
+    }
+
+    /**
+     * Returns the corners out of place or twisted, divided by the four
+     * that any turn moves, rounded up
+     */
+    public static int countMisplaced(int cube) {
+        int permutation = MOVABLE * (cube / ORIENTATIONS);
+        int orientation = MOVABLE * (cube % ORIENTATIONS);
+        int count = 0;
+        for (int i = 0; i < MOVABLE; i++) {
+            if (i != PERMUTATION_CORNERS[permutation + i]
+                    || 0 != ORIENTATION_TWISTS[orientation + i]) {
+                count++;
             }
         }
-        Character[] validTiles = { 'b','1','2','3','4','5','6','7','8' };
-        HashSet<Character> remainingTiles =
-            new HashSet<Character>(Arrays.asList(validTiles));
+        return (count + 3) >>> 2;
+    }
 
-        if (11 < tiles.length()) {
-            throw new TileStringException();
+    /**
+     * Returns the turns each corner needs on its own, summed and divided by
+     * the four corners that any turn moves, rounded up
+     */
+    public static int sumDistances(int cube) {
+        int permutation = MOVABLE * (cube / ORIENTATIONS);
+        int orientation = MOVABLE * (cube % ORIENTATIONS);
+        int sum = 0;
+        for (int i = 0; i < MOVABLE; i++) {
+            int corner = PERMUTATION_CORNERS[permutation + i];
+            sum += DISTANCES[3 * (MOVABLE * corner + i)
+                             + ORIENTATION_TWISTS[orientation + i]];
         }
+        return (sum + 3) >>> 2;
+    }
 
-        for (int i = 0; i < tiles.length(); i++) {
-            if (0 == (i + 1) % 4) {
-                if (' ' != tiles.charAt(i)) {
-                    throw new TileStringException();
+    /**
+     * Packs a facelet string into its int form
+     * @param  facelets  the colors in form "wwww rrrr bbbb oooo gggg yyyy"
+     * @throws IllegalArgumentException if the string is not a cube that U,
+     *         R and F turns can reach from the solved cube
+     */
+    public static int pack(String facelets) {
+        if (29 != facelets.length()) {
+            throw new IllegalArgumentException(facelets);
+        }
+        int[] colors = new int[24];
+        for (int i = 0; i < facelets.length(); i++) {
+            char c = facelets.charAt(i);
+            if (4 == i % 5) {
+                if (' ' != c) {
+                    throw new IllegalArgumentException(facelets);
                 }
             }
-            else if (!remainingTiles.remove(tiles.charAt(i))) {
-                throw new TileStringException();
+            else if (-1 == (colors[i - i / 5] = COLORS.indexOf(c))) {
+                throw new IllegalArgumentException(facelets);
             }
         }
-        if (!remainingTiles.isEmpty()) {
-            throw new TileStringException();
+        int cube = pack(colors);
+        if (-1 == cube) {
+            throw new IllegalArgumentException(facelets);
         }
+        return cube;
     }
-    
-    public String swapTiles(String s, int i, int j) {
-        char[] c = s.toCharArray();
 
-        char temp = c[i];
-        c[i] = c[j];
-        c[j] = temp;
+    /**
+     * Packs the face shown by each facelet
+     * @return  the packed cube, or -1 if the facelets are not a cube that
+     *          U, R and F turns can reach
+     */
+    private static int pack(int[] colors) {
+        int[] corners = new int[CORNERS];
+        int[] twists = new int[CORNERS];
+        boolean[] seen = new boolean[CORNERS];
+        int twistSum = 0;
+        for (int i = 0; i < CORNERS; i++) {
+            int twist = 0;
+            while (3 > twist && !isUpOrDown(colors[FACELETS[i][twist]])) {
+                twist++;
+            }
+            int corner = 0;
+            while (CORNERS > corner && !isCorner(colors, i, twist, corner)) {
+                corner++;
+            }
+            if (CORNERS == corner || seen[corner]) {
+                return -1;
+            }
+            seen[corner] = true;
+            corners[i] = corner;
+            twists[i] = twist;
+            twistSum += twist;
+        }
+        if (MOVABLE != corners[MOVABLE] || 0 != twists[MOVABLE] || 0 != twistSum % 3) {
+            return -1;
+        }
+        return rankPermutation(corners) * ORIENTATIONS + rankOrientation(twists);
+    }
 
-        return new String(c);
+    /**
+     * Unpacks a cube into its facelet String form
+     */
+    public static String unpack(int cube) {
+        int[] colors = colorsOf(cube);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < colors.length; i++) {
+            if (0 < i && 0 == i % 4) {
+                sb.append(' ');
+            }
+            sb.append(COLORS.charAt(colors[i]));
+        }
+        return sb.toString();
     }
-    
-    public boolean isLeftColumn(int i) {
-        return (0 == i % 4);
+
+    /**
+     * Returns the face shown by each facelet of a packed cube
+     */
+    private static int[] colorsOf(int cube) {
+        int permutation = MOVABLE * (cube / ORIENTATIONS);
+        int orientation = MOVABLE * (cube % ORIENTATIONS);
+        int[] colors = new int[24];
+        for (int i = 0; i < CORNERS; i++) {
+            int corner = MOVABLE;
+            int twist = 0;
+            if (MOVABLE > i) {
+                corner = PERMUTATION_CORNERS[permutation + i];
+                twist = ORIENTATION_TWISTS[orientation + i];
+            }
+            for (int n = 0; n < 3; n++) {
+                colors[FACELETS[i][(n + twist) % 3]] = faceOf(corner, n);
+            }
+        }
+        return colors;
     }
 
-    public boolean isRightColumn(int i) {
-        return (0 == (i - 2) % 4);
+    /**
+     * Returns the face that the nth facelet of a corner shows when solved
+     */
+    private static int faceOf(int corner, int n) {
+        return FACELETS[corner][n] / 4;
     }
 
-    public boolean isTopRow(int i) {
-        return (0 <= i && i <= 2);
+    /**
+     * Returns true if the facelets of a position show a corner with a twist
+     */
+    private static boolean isCorner(int[] colors, int position, int twist,
+                                    int corner) {
+        if (3 == twist) {
+            return false;
+        }
+        for (int n = 0; n < 3; n++) {
+            if (colors[FACELETS[position][(n + twist) % 3]] != faceOf(corner, n)) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    public boolean isBottomRow(int i) {
-        return (8 <= i && i <= 10);
+    private static boolean isUpOrDown(int face) {
+        return 0 == face || 5 == face;
     }
 
-    private void calculateHval() {
-        switch (this.heuristic) {
-            case COUNT_MISPLACED:
-                calculateMisplacedHval();
-                break;
-            case SUM_DISTANCES:
-                calculateDistanceHval();
-                break;
+    /**
+     * Ranks the corners in the movable positions by their Lehmer code
+     */
+    private static int rankPermutation(int[] corners) {
+        int rank = 0;
+        for (int i = 0; i < MOVABLE; i++) {
+            int smaller = 0;
+            for (int j = i + 1; j < MOVABLE; j++) {
+                if (corners[j] < corners[i]) {
+                    smaller++;
+                }
+            }
+            rank = rank * (MOVABLE - i) + smaller;
         }
+        return rank;
     }
 
-    public void calculateMisplacedHval() {
-        this.hVal = 0;
-        String goal = "b12 345 678";
-        for (int i = 0; i < goal.length(); i++) {
-            if (this.tiles.charAt(i) != goal.charAt(i) && goal.charAt(i) != ' ') {
-                this.hVal++;
+    private static void unrankPermutation(int rank, int[] corners) {
+        int[] code = new int[MOVABLE];
+        for (int i = MOVABLE - 1; 0 <= i; i--) {
+            code[i] = rank % (MOVABLE - i);
+            rank /= MOVABLE - i;
+        }
+        boolean[] used = new boolean[MOVABLE];
+        for (int i = 0; i < MOVABLE; i++) {
+            // the corner is the code[i]th of those not yet used
+            int corner = -1;
+            for (int skip = code[i]; 0 <= skip; skip--) {
+                do {
+                    corner++;
+                } while (used[corner]);
             }
+            used[corner] = true;
+            corners[i] = corner;
         }
     }
 
-    public void calculateDistanceHval() {
-        this.hVal = 0;
-        char[] tiles = this.tiles.replace(" ", "").replace("b", "0").toCharArray();
-        int xDist = 0;
-        int yDist = 0;
-        for (int i = 0; i < tiles.length; i++) {
-            int tileVal = Character.getNumericValue(tiles[i]);
-            if (0 < tileVal) {
-                xDist = Math.abs(tileVal % 3 - i % 3);
-                yDist = Math.abs(tileVal / 3 - i / 3);
-                this.hVal += (xDist + yDist);
-            }
+    /**
+     * Ranks the twists of the first six positions in base 3
+     */
+    private static int rankOrientation(int[] twists) {
+        int rank = 0;
+        for (int i = MOVABLE - 2; 0 <= i; i--) {
+            rank = 3 * rank + twists[i];
+        }
+        return rank;
+    }
+
+    private static void unrankOrientation(int rank, int[] twists) {
+        int sum = 0;
+        for (int i = 0; i < MOVABLE - 1; i++) {
+            twists[i] = rank % 3;
+            sum += twists[i];
+            rank /= 3;
         }
+        twists[MOVABLE - 1] = (3 - sum % 3) % 3;
     }
 }
@@ -0,0 +1,45 @@
+/**
+ * Frontier
+ *
+ * The open list of an A* search: node ids waiting to be expanded, lowest
+ * f(n) first.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.5
+ */
+package P1;
+
+public interface Frontier {
+
+    public int size();
+
+    public boolean isEmpty();
+
+    /**
+     * Returns true if the node is waiting in the frontier
+     * @param  id  the node id
+     */
+    public boolean contains(int id);
+
+    /**
+     * Adds a node that is not already in the frontier
+     * @param  id  the node id
+     * @param  f   f(n) of the node
+     * @param  g   g(n) of the node, available for breaking ties
+     */
+    public void add(int id, int f, int g);
+
+    /**
+     * Moves a node already in the frontier to a lower or equal f(n)
+     * @param  id  the node id
+     * @param  f   the new f(n)
+     * @param  g   the new g(n)
+     */
+    public void decreaseKey(int id, int f, int g);
+
+    /**
+     * Removes and returns the node with the lowest f(n)
+     * @return  the node id
+     */
+    public int poll();
+}
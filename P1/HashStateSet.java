@@ -0,0 +1,109 @@
+/**
+ * HashStateSet
+ *
+ * A StateSet for boards of any layout: an open-addressing table of packed
+ * boards with linear probing, kept at most half full. A thread claims an
+ * empty slot with a compare-and-set, and slots are never emptied again, so
+ * concurrent adds only need the table not to grow under them, which
+ * reserve() sees to between plies.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.11.1
+ */
+package P1;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HashStateSet implements StateSet {
+
+    private static final VarHandle KEYS =
+        MethodHandles.arrayElementVarHandle(long[].class);
+
+    /** No packed board is 0, since the numbered tiles are never 0 **/
+    private static final long EMPTY = 0L;
+
+    private long[] keys = new long[1024];
+    private int mask = this.keys.length - 1;
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Override
+    public boolean add(long board) {
+        int slot = StateTable.hash(board) & this.mask;
+        while (EMPTY != this.keys[slot]) {
+            if (board == this.keys[slot]) {
+                return false;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = board;
+        if (this.size.incrementAndGet() > this.mask >>> 1) {
+            grow(this.keys.length << 1);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addConcurrent(long board) {
+        int slot = StateTable.hash(board) & this.mask;
+        while (true) {
+            long key = (long) KEYS.getVolatile(this.keys, slot);
+            if (EMPTY == key) {
+                if (KEYS.compareAndSet(this.keys, slot, EMPTY, board)) {
+                    this.size.incrementAndGet();
+                    return true;
+                }
+                // another thread took the slot; it may have taken this board
+                continue;
+            }
+            if (board == key) {
+                return false;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+    }
+
+    @Override
+    public boolean contains(long board) {
+        int slot = StateTable.hash(board) & this.mask;
+        while (EMPTY != this.keys[slot]) {
+            if (board == this.keys[slot]) {
+                return true;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return false;
+    }
+
+    @Override
+    public void reserve(int count) {
+        long needed = 2L * (this.size.get() + count);
+        int capacity = this.keys.length;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        if (capacity > this.keys.length) {
+            grow(capacity);
+        }
+    }
+
+    public int size() {
+        return this.size.get();
+    }
+
+    private void grow(int capacity) {
+        long[] oldKeys = this.keys;
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+        for (long key : oldKeys) {
+            if (EMPTY != key) {
+                int slot = StateTable.hash(key) & this.mask;
+                while (EMPTY != this.keys[slot]) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * IdaStarSearch
+ *
+ * Iterative-deepening A*. Each iteration is a depth-first search that cuts
+ * off at an f(n) bound, and the next bound is the lowest f(n) that was cut.
+ * The board is made and unmade in place, so memory is the move stack alone,
+ * proportional to the solution depth.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.7
+ */
+package P1;
+
+import java.util.Arrays;
+
+public class IdaStarSearch {
+
+    /** Returned by search() once the goal has been reached **/
+    private static final int FOUND = -1;
+
+    /** Returned by search() once the node budget or the time is up **/
+    private static final int ABORTED = -2;
+
+    private static final int NO_MOVE = -1;
+
+    private final BoardLayout layout;
+    private final PuzzleState.Heuristic heuristic;
+    private final int maxNodes;
+
+    private long board;
+    private int nodeCounter;
+    private int iterationCounter;
+    private byte[] moves = new byte[64];
+    private int steps = -1;
+    private SearchStats stats;
+    private CancellationToken token = new CancellationToken();
+    private boolean stopped;
+    private long bestBoard;
+    private int bestH;
+
+    /**
+     * Constructs an IdaStarSearch
+     * @param  layout     the shape of the boards searched
+     * @param  heuristic  the estimate used to calculate h(n)
+     * @param  maxNodes   the number of nodes to generate before giving up
+     */
+    public IdaStarSearch(BoardLayout layout, PuzzleState.Heuristic heuristic,
+                         int maxNodes) {
+        this.layout = layout;
+        this.heuristic = heuristic;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Lets the token stop later runs
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Searches for an optimal path from the given board to the goal
+     * @param  start  the packed board to start from
+     * @return  true if a path was found within the node budget
+     */
+    public boolean run(long start) {
+        this.board = start;
+        this.nodeCounter = 1;
+        this.iterationCounter = 0;
+        this.steps = -1;
+        this.stats = new SearchStats();
+        this.stopped = false;
+
+        int h = this.layout.estimate(start, this.heuristic);
+        this.bestBoard = start;
+        this.bestH = h;
+        int bound = h;
+        while (true) {
+            this.iterationCounter++;
+            int t = search(0, h, bound, NO_MOVE);
+            if (FOUND == t) {
+                return true;
+            }
+            if (ABORTED == t || Integer.MAX_VALUE == t) {
+                return false;
+            }
+            bound = t;
+        }
+    }
+
+    /**
+     * Returns the lowest f(n) beyond the bound below the current board, or
+     * FOUND/ABORTED
+     */
+    private int search(int g, int h, int bound, int lastMove) {
+        int f = g + h;
+        if (f > bound) {
+            return f;
+        }
+        if (this.layout.getGoal() == this.board) {
+            this.steps = g;
+            return FOUND;
+        }
+        if (g == this.moves.length) {
+            this.moves = Arrays.copyOf(this.moves, g << 1);
+        }
+        this.stats.expanded(f);
+        this.stats.openSize(g + 1);
+        if (h < this.bestH) {
+            this.bestH = h;
+            this.bestBoard = this.board;
+        }
+        if (0 == (this.stats.getExpansions() & (CancellationToken.CHECK_INTERVAL - 1))
+                && this.token.shouldStop()) {
+            this.stopped = true;
+            return ABORTED;
+        }
+        int min = Integer.MAX_VALUE;
+        for (int move = 0; move < 4; move++) {
+            // never undo the move that led here
+            if (PuzzleState.opposite(move) == lastMove) {
+                continue;
+            }
+            long child = this.layout.move(this.board, move);
+            if (-1L == child) {
+                continue;
+            }
+            if (this.maxNodes < ++this.nodeCounter) {
+                return ABORTED;
+            }
+            this.stats.generated(1);
+            int childH = this.layout.estimateAfter(this.board, move, h, this.heuristic);
+            this.board = child;
+            this.moves[g] = (byte) move;
+            int t = search(g + 1, childH, bound, move);
+            this.board = this.layout.move(this.board, PuzzleState.opposite(move));
+            if (0 > t) {
+                return t;
+            }
+            if (t < min) {
+                min = t;
+            }
+        }
+        return min;
+    }
+
+    public int getNodeCount() {
+        return this.nodeCounter;
+    }
+
+    /**
+     * Returns the counters of the last run; the open high-water mark is the
+     * deepest path held, since IDA* keeps no open list
+     */
+    public SearchStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns true if the last run was stopped by its CancellationToken
+     */
+    public boolean isStopped() {
+        return this.stopped;
+    }
+
+    /**
+     * Returns the board with the lowest h(n) expanded by the last run
+     */
+    public long getBestBoard() {
+        return this.bestBoard;
+    }
+
+    public int getIterationCount() {
+        return this.iterationCounter;
+    }
+
+    /**
+     * Returns the length of the path found, or -1
+     */
+    public int getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Returns the moves of the blank along the path found
+     */
+    public PuzzleState.Move[] getMoves() {
+        PuzzleState.Move[] path = new PuzzleState.Move[Math.max(this.steps, 0)];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = PuzzleState.Move.values()[this.moves[i]];
+        }
+        return path;
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * IndexedHeap
+ *
+ * A binary min-heap of node ids ordered by an int key. Every id remembers
+ * its own slot in the heap, so membership tests are O(1) and a node whose
+ * key improves can be moved up in O(log n) instead of being found by a
+ * linear scan and removed.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.4
+ */
+package P1;
+
+import java.util.Arrays;
+
+public class IndexedHeap implements Frontier {
+
+    private int[] heap;
+    private int[] keys;
+    /** position[id] is the heap slot holding id, or -1 **/
+    private int[] position;
+    private int size = 0;
+
+    public IndexedHeap() {
+        this(1024);
+    }
+
+    public IndexedHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.keys = new int[capacity];
+        this.position = new int[capacity];
+        Arrays.fill(this.position, -1);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return 0 == this.size;
+    }
+
+    /**
+     * Returns true if the node is waiting in the heap
+     * @param  id  the node id
+     */
+    @Override
+    public boolean contains(int id) {
+        return id < this.position.length && 0 <= this.position[id];
+    }
+
+    /**
+     * Adds a node that is not already in the heap
+     * @param  id   the node id
+     * @param  key  the priority, lowest first
+     */
+    public void add(int id, int key) {
+        if (this.size == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.size << 1);
+            this.keys = Arrays.copyOf(this.keys, this.size << 1);
+        }
+        if (id >= this.position.length) {
+            int oldLength = this.position.length;
+            this.position = Arrays.copyOf(this.position,
+                                          Math.max(oldLength << 1, id + 1));
+            Arrays.fill(this.position, oldLength, this.position.length, -1);
+        }
+        siftUp(this.size++, id, key);
+    }
+
+    @Override
+    public void add(int id, int f, int g) {
+        add(id, f);
+    }
+
+    /**
+     * Lowers the key of a node already in the heap
+     * @param  id   the node id
+     * @param  key  the new priority, no greater than the current one
+     */
+    public void decreaseKey(int id, int key) {
+        siftUp(this.position[id], id, key);
+    }
+
+    @Override
+    public void decreaseKey(int id, int f, int g) {
+        decreaseKey(id, f);
+    }
+
+    /**
+     * Returns the key of the node at the top of the heap
+     */
+    public int peekKey() {
+        return this.keys[0];
+    }
+
+    /**
+     * Removes and returns the node with the lowest key
+     * @return  the node id
+     */
+    @Override
+    public int poll() {
+        int top = this.heap[0];
+        this.position[top] = -1;
+        if (0 < --this.size) {
+            siftDown(0, this.heap[this.size], this.keys[this.size]);
+        }
+        return top;
+    }
+
+    private void siftUp(int slot, int id, int key) {
+        while (0 < slot) {
+            int parent = (slot - 1) >>> 1;
+            if (this.keys[parent] <= key) {
+                break;
+            }
+            place(slot, this.heap[parent], this.keys[parent]);
+            slot = parent;
+        }
+        place(slot, id, key);
+    }
+
+    private void siftDown(int slot, int id, int key) {
+        int half = this.size >>> 1;
+        while (slot < half) {
+            int child = (slot << 1) + 1;
+            if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+                child++;
+            }
+            if (key <= this.keys[child]) {
+                break;
+            }
+            place(slot, this.heap[child], this.keys[child]);
+            slot = child;
+        }
+        place(slot, id, key);
+    }
+
+    private void place(int slot, int id, int key) {
+        this.heap[slot] = id;
+        this.keys[slot] = key;
+        this.position[id] = slot;
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * InstanceGenerator
+ *
+ * Random boards, drawn one of two ways. Uniform 3x3 boards unrank a random
+ * index into the solvable half of the permutations, so every solvable
+ * board is equally likely and no draw is ever thrown away; larger boards
+ * shuffle the tiles and swap two numbered tiles if the shuffle is not
+ * solvable, which pairs each unsolvable board with one solvable one. Walks
+ * start at the goal and make random moves, never undoing the move just
+ * made, which gives boards near a chosen depth.
+ *
+ * The static streams give every instance its own generator seeded from
+ * the stream seed and the instance's position, so a stream holds the same
+ * boards in the same order however it is split across threads.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.27
+ */
+package P1;
+
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+public class InstanceGenerator {
+
+    /**
+     * Spreads consecutive instance numbers across the seed space; it must
+     * not be SplittableRandom's own gamma, or the sequences of neighboring
+     * instances would overlap
+     **/
+    private static final long SEED_STRIDE = 0xBF58476D1CE4E5B9L;
+
+    private static final int NO_MOVE = -1;
+
+    private final BoardLayout layout;
+    private final SplittableRandom random;
+
+    /**
+     * Constructs an InstanceGenerator of 3x3 boards with an unpredictable
+     * seed
+     */
+    public InstanceGenerator() {
+        this(BoardLayout.STANDARD, new SplittableRandom());
+    }
+
+    public InstanceGenerator(long seed) {
+        this(BoardLayout.STANDARD, seed);
+    }
+
+    public InstanceGenerator(BoardLayout layout) {
+        this(layout, new SplittableRandom());
+    }
+
+    public InstanceGenerator(BoardLayout layout, long seed) {
+        this(layout, new SplittableRandom(seed));
+    }
+
+    private InstanceGenerator(BoardLayout layout, SplittableRandom random) {
+        this.layout = layout;
+        this.random = random;
+    }
+
+    /**
+     * Returns a packed board drawn uniformly from the solvable boards
+     */
+    public long uniform() {
+        if (BoardLayout.STANDARD == this.layout) {
+            return StateIndex.unrank(this.random.nextInt(StateIndex.SIZE));
+        }
+        int[] cells = new int[this.layout.getSize()];
+        for (int i = 0; i < cells.length; i++) {
+            int j = this.random.nextInt(i + 1);
+            cells[i] = cells[j];
+            cells[j] = i;
+        }
+        long board = this.layout.pack(cells);
+        if (!this.layout.isSolvable(board)) {
+            // the first two numbered tiles, which flips the parity
+            int first = (0 == cells[0]) ? 1 : 0;
+            int second = (0 == cells[first + 1]) ? first + 2 : first + 1;
+            int swap = cells[first];
+            cells[first] = cells[second];
+            cells[second] = swap;
+            board = this.layout.pack(cells);
+        }
+        return board;
+    }
+
+    /**
+     * Returns the packed board reached by a random walk from the goal that
+     * never undoes its last move
+     * @param  steps  the number of moves to make
+     */
+    public long walk(int steps) {
+        long board = this.layout.getGoal();
+        int last = NO_MOVE;
+        for (int i = 0; i < steps; i++) {
+            while (true) {
+                int move = this.random.nextInt(4);
+                long child = this.layout.move(board, move);
+                if (-1L != child && PuzzleState.opposite(move) != last) {
+                    board = child;
+                    last = move;
+                    break;
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Returns a parallel stream of uniformly drawn packed 3x3 boards
+     * @param  count  the number of boards
+     * @param  seed   the seed; the same seed gives the same boards
+     */
+    public static LongStream uniform(long count, final long seed) {
+        return LongStream.range(0, count).parallel()
+            .map(i -> forInstance(seed, i).uniform());
+    }
+
+    /**
+     * Returns a parallel stream of packed 3x3 boards reached by random walks
+     * @param  count  the number of boards
+     * @param  steps  the number of moves in each walk
+     * @param  seed   the seed; the same seed gives the same boards
+     */
+    public static LongStream walks(long count, final int steps, final long seed) {
+        return LongStream.range(0, count).parallel()
+            .map(i -> forInstance(seed, i).walk(steps));
+    }
+
+    private static InstanceGenerator forInstance(long seed, long i) {
+        return new InstanceGenerator(seed + i * SEED_STRIDE);
+    }
+}
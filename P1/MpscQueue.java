@@ -0,0 +1,66 @@
+/**
+ * MpscQueue
+ *
+ * An unbounded lock-free queue for many producer threads and one consumer
+ * thread. Producers swing the tail with a single atomic exchange and then
+ * link the old tail to their node; the consumer follows next links from a
+ * dummy head without any atomic writes.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.12
+ */
+package P1;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MpscQueue<T> {
+
+    private static final class Node<T> {
+        T value;
+        volatile Node<T> next;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    private final AtomicReference<Node<T>> tail;
+    private Node<T> head;
+
+    public MpscQueue() {
+        this.head = new Node<T>(null);
+        this.tail = new AtomicReference<Node<T>>(this.head);
+    }
+
+    /**
+     * Adds a value; safe to call from any thread
+     */
+    public void offer(T value) {
+        Node<T> node = new Node<T>(value);
+        Node<T> previous = this.tail.getAndSet(node);
+        previous.next = node;
+    }
+
+    /**
+     * Removes and returns the oldest value, or null if none is visible yet;
+     * only the consuming thread may call this
+     */
+    public T poll() {
+        Node<T> next = this.head.next;
+        if (null == next) {
+            return null;
+        }
+        T value = next.value;
+        next.value = null;
+        this.head = next;
+        return value;
+    }
+
+    /**
+     * Returns true if no value is visible yet; only the consuming thread may
+     * call this
+     */
+    public boolean isEmpty() {
+        return null == this.head.next;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * NodeArena
+ *
+ * Search nodes stored as parallel primitive arrays instead of objects: the
+ * packed board, g(n), h(n), and a link holding the id of the parent node
+ * above the 2-bit code of the move that led from the parent. A node is an
+ * int id, 15 bytes in all, and the path to any node is rebuilt by following
+ * links back to the root. The arrays grow a fixed-size chunk at a time, so
+ * growing never copies the nodes already stored and never needs one huge
+ * contiguous allocation.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.19
+ */
+package P1;
+
+import java.util.Arrays;
+
+public class NodeArena {
+
+    /** Marks the root, which has no parent or move **/
+    public static final int NONE = -1;
+
+    /** Ids must leave room for the move code in a link **/
+    private static final int MAX_NODES = 1 << 30;
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private long[][] boards = new long[16][];
+    private short[][] gVals = new short[16][];
+    private byte[][] hVals = new byte[16][];
+    private int[][] links = new int[16][];
+    private int size = 0;
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Stores a node
+     * @param  board   the packed board
+     * @param  g       g(n), at most Short.MAX_VALUE
+     * @param  h       h(n)
+     * @param  parent  the id of the parent node, or NONE
+     * @param  move    the move of the blank from the parent, or NONE
+     * @return  the id of the new node
+     */
+    public int add(long board, int g, int h, int parent, int move) {
+        int id = this.size;
+        if (MAX_NODES == id) {
+            throw new IllegalStateException("Too many nodes");
+        }
+        int chunk = id >>> CHUNK_SHIFT;
+        if (0 == (id & CHUNK_MASK)) {
+            addChunk(chunk);
+        }
+        int i = id & CHUNK_MASK;
+        this.boards[chunk][i] = board;
+        this.gVals[chunk][i] = (short) g;
+        this.hVals[chunk][i] = (byte) h;
+        this.links[chunk][i] = link(parent, move);
+        this.size++;
+        return id;
+    }
+
+    private void addChunk(int chunk) {
+        if (chunk == this.boards.length) {
+            int length = chunk << 1;
+            this.boards = Arrays.copyOf(this.boards, length);
+            this.gVals = Arrays.copyOf(this.gVals, length);
+            this.hVals = Arrays.copyOf(this.hVals, length);
+            this.links = Arrays.copyOf(this.links, length);
+        }
+        this.boards[chunk] = new long[CHUNK_SIZE];
+        this.gVals[chunk] = new short[CHUNK_SIZE];
+        this.hVals[chunk] = new byte[CHUNK_SIZE];
+        this.links[chunk] = new int[CHUNK_SIZE];
+    }
+
+    public long getBoard(int id) {
+        return this.boards[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+    }
+
+    public int getGval(int id) {
+        return this.gVals[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+    }
+
+    public int getHval(int id) {
+        return this.hVals[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+    }
+
+    public int getFval(int id) {
+        return getGval(id) + getHval(id);
+    }
+
+    private static int link(int parent, int move) {
+        return (NONE == parent) ? NONE : (parent << 2) | move;
+    }
+
+    public int getParent(int id) {
+        int link = this.links[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+        return (NONE == link) ? NONE : link >>> 2;
+    }
+
+    public int getMove(int id) {
+        int link = this.links[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+        return (NONE == link) ? NONE : link & 3;
+    }
+
+    /**
+     * Returns the moves of the blank from the root to a node, found by
+     * following parent links back from the node
+     * @param  id  the node id
+     */
+    public PuzzleState.Move[] path(int id) {
+        PuzzleState.Move[] all = PuzzleState.Move.values();
+        PuzzleState.Move[] path = new PuzzleState.Move[getGval(id)];
+        for (int step = path.length - 1; 0 <= step; step--) {
+            path[step] = all[getMove(id)];
+            id = getParent(id);
+        }
+        return path;
+    }
+
+    /**
+     * Records a shorter path to a node
+     * @param  id      the node id
+     * @param  g       the new g(n)
+     * @param  parent  the id of the new parent node
+     * @param  move    the move of the blank from the new parent
+     */
+    public void relink(int id, int g, int parent, int move) {
+        int chunk = id >>> CHUNK_SHIFT;
+        int i = id & CHUNK_MASK;
+        this.gVals[chunk][i] = (short) g;
+        this.links[chunk][i] = link(parent, move);
+    }
+}
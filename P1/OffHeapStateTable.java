@@ -0,0 +1,128 @@
+/**
+ * OffHeapStateTable
+ *
+ * A StateMap kept outside the Java heap in direct ByteBuffers, so that a
+ * search can hold tens of millions of closed boards with a small heap and
+ * without the collector ever scanning them. Each slot is a packed board
+ * and an int value, 12 bytes, in an open-addressing table with linear
+ * probing. The table is sized once, for the boards the search may store
+ * but never beyond a byte budget, and never grows; it reports itself full
+ * at a load factor of three quarters, leaving room for the successors of
+ * the expansion in progress. Sizing for the boards matters because direct
+ * buffers are zeroed up front and only freed once the collector notices
+ * them, so a table as large as the budget would cost every short search
+ * the whole budget.
+ *
+ * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to
+ * the maximum heap size, so large budgets need that flag raised as well.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.21
+ */
+package P1;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class OffHeapStateTable implements StateMap {
+
+    private static final int SLOT_BYTES = 12;
+
+    /** Slots per buffer, keeping each buffer under 1 GB **/
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    /** No packed board is 0, since the numbered tiles are never 0 **/
+    private static final long EMPTY = 0L;
+
+    private final ByteBuffer[] segments;
+    private final long mask;
+    private final long limit;
+    private int size = 0;
+
+    /**
+     * Constructs an OffHeapStateTable no larger than a byte budget
+     * @param  budget  the most bytes of direct memory to use
+     */
+    public OffHeapStateTable(long budget) {
+        this(budget, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs an OffHeapStateTable just large enough for a number of
+     * boards, or no larger than a byte budget if that is smaller
+     * @param  budget    the most bytes of direct memory to use
+     * @param  capacity  the most boards the search will store
+     */
+    public OffHeapStateTable(long budget, int capacity) {
+        // the fewest slots that stay under the load factor once full
+        long needed = Long.highestOneBit((4L * capacity / 3) << 1);
+        long slots = Long.highestOneBit(
+            Math.max(Math.min(budget / SLOT_BYTES, needed), 16));
+        this.mask = slots - 1;
+        this.limit = Math.min(slots - (slots >>> 2), Integer.MAX_VALUE);
+        int count = (int) ((slots + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        this.segments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long segmentSlots = Math.min(slots - ((long) i << SEGMENT_SHIFT),
+                                         1L << SEGMENT_SHIFT);
+            // direct buffers start zeroed, which marks every slot EMPTY
+            this.segments[i] = ByteBuffer.allocateDirect(
+                (int) (segmentSlots * SLOT_BYTES)).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean isFull() {
+        return this.size >= this.limit;
+    }
+
+    @Override
+    public int get(long board) {
+        long slot = (StateTable.hash(board) & 0xFFFFFFFFL) & this.mask;
+        while (true) {
+            ByteBuffer segment = this.segments[(int) (slot >>> SEGMENT_SHIFT)];
+            int offset = (int) (slot & SEGMENT_MASK) * SLOT_BYTES;
+            long key = segment.getLong(offset);
+            if (board == key) {
+                return segment.getInt(offset + 8);
+            }
+            if (EMPTY == key) {
+                return -1;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+    }
+
+    /**
+     * @throws IllegalStateException  if no empty slot would remain
+     */
+    @Override
+    public void put(long board, int value) {
+        long slot = (StateTable.hash(board) & 0xFFFFFFFFL) & this.mask;
+        while (true) {
+            ByteBuffer segment = this.segments[(int) (slot >>> SEGMENT_SHIFT)];
+            int offset = (int) (slot & SEGMENT_MASK) * SLOT_BYTES;
+            long key = segment.getLong(offset);
+            if (board == key) {
+                segment.putInt(offset + 8, value);
+                return;
+            }
+            if (EMPTY == key) {
+                if (this.size == this.mask) {
+                    throw new IllegalStateException("The off-heap table is full");
+                }
+                segment.putLong(offset, board);
+                segment.putInt(offset + 8, value);
+                this.size++;
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ * ParallelAStarSearch
+ *
+ * Hash-distributed A* (HDA*). Every board is owned by one worker thread,
+ * chosen by its hash, and only the owner keeps it in an open or closed list,
+ * so the lists need no locking. Successors are sent to their owners in
+ * small batches over lock-free MPSC queues.
+ *
+ * The search ends once no worker holds a node with f(n) below the best
+ * solution found so far and no batch is in transit. Both are tracked by a
+ * single counter holding the number of busy workers plus the number of
+ * unprocessed batches; it only reaches zero when neither remains, and
+ * nothing can raise it again from there. A goal is recorded by whichever
+ * worker generates it, owner or not, which keeps the bound tight early.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.12
+ */
+package P1;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class ParallelAStarSearch {
+
+    /** Successors buffered per destination before a batch is sent **/
+    private static final int BATCH_SIZE = 64;
+
+    /** Expansions between flushes of partly filled batches **/
+    private static final int FLUSH_INTERVAL = 32;
+
+    private final BoardLayout layout;
+    private final PuzzleState.Heuristic heuristic;
+    private final int maxNodes;
+    private final Worker[] workers;
+
+    /** Busy workers plus batches sent but not yet processed **/
+    private final AtomicInteger work = new AtomicInteger();
+    private final AtomicInteger best = new AtomicInteger(Integer.MAX_VALUE);
+    private final AtomicLong nodeCounter = new AtomicLong();
+    private volatile boolean done;
+    private volatile boolean stopped;
+    private CancellationToken token = new CancellationToken();
+    private SearchStats stats;
+    private long bestBoard;
+
+    /**
+     * Constructs a ParallelAStarSearch
+     * @param  layout     the shape of the boards searched
+     * @param  heuristic  the estimate used to calculate h(n)
+     * @param  maxNodes   the number of nodes to generate before giving up
+     * @param  threads    the number of worker threads
+     */
+    public ParallelAStarSearch(BoardLayout layout,
+                               PuzzleState.Heuristic heuristic, int maxNodes,
+                               int threads) {
+        this.layout = layout;
+        this.heuristic = heuristic;
+        this.maxNodes = maxNodes;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            this.workers[i] = new Worker(i);
+        }
+    }
+
+    /**
+     * Lets the token stop later runs
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Searches for an optimal path from the given board to the goal
+     * @param  start  the packed board to start from
+     * @return  true if a path was found within the node budget
+     */
+    public boolean run(long start) throws InterruptedException {
+        this.nodeCounter.set(1);
+        this.work.set(this.workers.length);
+        this.workers[ownerOf(start)].receive(start, 0,
+            this.layout.estimate(start, this.heuristic));
+
+        Thread[] threads = new Thread[this.workers.length];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(this.workers[i], "hda-star-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        this.stats = new SearchStats();
+        this.bestBoard = start;
+        int bestH = Integer.MAX_VALUE;
+        for (Worker worker : this.workers) {
+            worker.stats.setClosedSize(worker.ids.size());
+            this.stats.add(worker.stats);
+            if (worker.bestH < bestH) {
+                bestH = worker.bestH;
+                this.bestBoard = worker.bestBoard;
+            }
+        }
+        return !this.stopped && Integer.MAX_VALUE != this.best.get()
+            && this.nodeCounter.get() <= this.maxNodes;
+    }
+
+    public long getNodeCount() {
+        return this.nodeCounter.get();
+    }
+
+    /**
+     * Returns the counters of every worker added together
+     */
+    public SearchStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns true if the last run was stopped by its CancellationToken
+     */
+    public boolean isStopped() {
+        return this.stopped;
+    }
+
+    /**
+     * Returns the board with the lowest h(n) expanded by any worker
+     */
+    public long getBestBoard() {
+        return this.bestBoard;
+    }
+
+    /**
+     * Returns the length of the path found, or -1
+     */
+    public int getSteps() {
+        int steps = this.best.get();
+        return (Integer.MAX_VALUE == steps) ? -1 : steps;
+    }
+
+    /**
+     * Picks the owner from the high bits of the hash, since each worker's
+     * StateTable indexes by the low bits
+     */
+    private int ownerOf(long board) {
+        long hash = StateTable.hash(board) & 0xFFFFFFFFL;
+        return (int) ((hash * this.workers.length) >>> 32);
+    }
+
+    private void recordSolution(int steps) {
+        int current = this.best.get();
+        while (steps < current && !this.best.compareAndSet(current, steps)) {
+            current = this.best.get();
+        }
+    }
+
+    /** Successors bound for one worker **/
+    private static final class Batch {
+        final long[] boards = new long[BATCH_SIZE];
+        final int[] gVals = new int[BATCH_SIZE];
+        final byte[] hVals = new byte[BATCH_SIZE];
+        int size = 0;
+    }
+
+    private final class Worker implements Runnable {
+
+        private final int index;
+        private final MpscQueue<Batch> inbox = new MpscQueue<Batch>();
+        private final Batch[] outbox;
+
+        private final StateTable ids = new StateTable();
+        private final Frontier frontier =
+            new BucketQueue(BucketQueue.TieBreak.HIGH_G);
+        private final NodeArena nodes = new NodeArena();
+        private final SearchStats stats = new SearchStats();
+        private long generated = 0;
+        private long bestBoard;
+        private int bestH = Integer.MAX_VALUE;
+
+        Worker(int index) {
+            this.index = index;
+            this.outbox = new Batch[ParallelAStarSearch.this.workers.length];
+        }
+
+        @Override
+        public void run() {
+            int expansions = 0;
+            while (!done) {
+                drainInbox();
+                int id = nextNode();
+                if (-1 != id) {
+                    expand(id);
+                    if (0 == ++expansions % FLUSH_INTERVAL) {
+                        flushAll();
+                    }
+                    if (0 == expansions % CancellationToken.CHECK_INTERVAL
+                            && token.shouldStop()) {
+                        stopped = true;
+                        done = true;
+                    }
+                    continue;
+                }
+                // nothing worth expanding here; hand everything on and wait
+                flushAll();
+                publishCount();
+                if (0 == work.decrementAndGet()) {
+                    done = true;
+                    break;
+                }
+                waitForWork();
+            }
+        }
+
+        /**
+         * Returns the open node with the lowest f(n) if it could still lead
+         * to a better solution, or -1
+         */
+        private int nextNode() {
+            while (!this.frontier.isEmpty()) {
+                int id = this.frontier.poll();
+                if (this.nodes.getFval(id) < best.get()) {
+                    return id;
+                }
+            }
+            return -1;
+        }
+
+        private void waitForWork() {
+            int spins = 0;
+            while (!done) {
+                if (!this.inbox.isEmpty()) {
+                    work.incrementAndGet();
+                    return;
+                }
+                if (0 == work.get()) {
+                    done = true;
+                    return;
+                }
+                if (++spins < 100) {
+                    Thread.onSpinWait();
+                }
+                else {
+                    LockSupport.parkNanos(20000);
+                }
+            }
+        }
+
+        private void drainInbox() {
+            for (Batch batch; null != (batch = this.inbox.poll()); ) {
+                for (int i = 0; i < batch.size; i++) {
+                    receive(batch.boards[i], batch.gVals[i], batch.hVals[i]);
+                }
+                work.decrementAndGet();
+            }
+        }
+
+        /**
+         * Opens a board owned by this worker, or reopens it if it was
+         * reached before by a longer path
+         */
+        void receive(long board, int g, int h) {
+            int id = this.ids.get(board);
+            if (-1 == id) {
+                // parents live in other workers' arenas, so none are kept
+                id = this.nodes.add(board, g, h, NodeArena.NONE, NodeArena.NONE);
+                this.ids.put(board, id);
+                this.frontier.add(id, g + h, g);
+            }
+            else {
+                this.stats.duplicate();
+                if (g < this.nodes.getGval(id)) {
+                    this.nodes.relink(id, g, NodeArena.NONE, NodeArena.NONE);
+                    int f = this.nodes.getFval(id);
+                    if (this.frontier.contains(id)) {
+                        this.frontier.decreaseKey(id, f, g);
+                    }
+                    else {
+                        this.stats.reopened();
+                        this.frontier.add(id, f, g);
+                    }
+                }
+            }
+        }
+
+        private void expand(int id) {
+            long board = this.nodes.getBoard(id);
+            int hVal = this.nodes.getHval(id);
+            int g = this.nodes.getGval(id) + 1;
+            if (layout.getGoal() == board) {
+                recordSolution(g - 1);
+                return;
+            }
+            this.stats.expanded(g - 1 + hVal);
+            if (hVal < this.bestH) {
+                this.bestH = hVal;
+                this.bestBoard = board;
+            }
+            for (int move = 0; move < 4; move++) {
+                long child = layout.move(board, move);
+                if (-1L == child) {
+                    continue;
+                }
+                this.generated++;
+                this.stats.generated(1);
+                if (layout.getGoal() == child) {
+                    recordSolution(g);
+                    continue;
+                }
+                int h = layout.estimateAfter(board, move, hVal, heuristic);
+                int owner = ownerOf(child);
+                if (owner == this.index) {
+                    receive(child, g, h);
+                }
+                else {
+                    send(owner, child, g, h);
+                }
+            }
+            this.stats.openSize(this.frontier.size());
+            if (256 <= this.generated) {
+                publishCount();
+            }
+        }
+
+        private void send(int owner, long board, int g, int h) {
+            Batch batch = this.outbox[owner];
+            if (null == batch) {
+                batch = this.outbox[owner] = new Batch();
+            }
+            batch.boards[batch.size] = board;
+            batch.gVals[batch.size] = g;
+            batch.hVals[batch.size] = (byte) h;
+            if (BATCH_SIZE == ++batch.size) {
+                flush(owner);
+            }
+        }
+
+        private void flush(int owner) {
+            Batch batch = this.outbox[owner];
+            if (null != batch && 0 < batch.size) {
+                work.incrementAndGet();
+                workers[owner].inbox.offer(batch);
+                this.outbox[owner] = null;
+            }
+        }
+
+        private void flushAll() {
+            for (int owner = 0; owner < this.outbox.length; owner++) {
+                flush(owner);
+            }
+        }
+
+        /**
+         * Adds the nodes generated since the last call to the shared count
+         * and stops every worker once the budget is spent
+         */
+        private void publishCount() {
+            if (maxNodes < nodeCounter.addAndGet(this.generated)) {
+                done = true;
+            }
+            this.generated = 0;
+        }
+    }
+}
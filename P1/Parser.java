@@ -7,10 +7,12 @@
 package P1;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.util.LinkedList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -19,15 +21,27 @@ import java.util.Scanner;
 public class Parser {
     
     private enum Command {
-        SETSTATE, RANDOMIZESTATE, PRINTSTATE, MOVE, SOLVE, MAXNODES, NEWRANDOM
+        SETSTATE, RANDOMIZESTATE, PRINTSTATE, MOVE, SOLVE, MAXNODES, NEWRANDOM,
+        FRONTIER, OFFHEAP, CACHE, CACHESTATS, STATS, TIMELIMIT
     }
     
+    /** Solutions the cache keeps in memory **/
+    private static final int CACHE_CAPACITY = 4096;
+    
     private Puzzle puzzle;
     private int maxNodes = -1;
+    private long timeLimit = 0;
+    private Puzzle.FrontierType frontier = Puzzle.FrontierType.HEAP;
+    private long offHeapBytes = 0;
+    private SolutionCache cache = new SolutionCache(CACHE_CAPACITY);
+    private SearchResult lastResult;
     
     public static void main (String[] args) throws IOException, FileNotFoundException {
         Parser p = new Parser();
-        if (1 == args.length) {
+        if (0 < args.length && args[0].equals("--batch")) {
+            batch(args);
+        }
+        else if (1 == args.length) {
             BufferedReader br = new BufferedReader(new FileReader(new File(args[0])));
             for (String command; (command = br.readLine()) != null; ) {
                 try {
@@ -43,7 +57,7 @@ public class Parser {
         else {
             Scanner scan = new Scanner(System.in);
             System.out.print("$ ");
-            String[] command = p.tokenizeCommand(scan.nextLine());
+            String[] command = tokenizeCommand(scan.nextLine());
             while (0 < command.length && !command[0].equalsIgnoreCase("exit")) {
                 try {
                     p.performCommand(command);
@@ -52,13 +66,56 @@ public class Parser {
                     System.err.println("Invalid input");
                 }
                 System.out.print("$ ");
-                command = p.tokenizeCommand(scan.nextLine());
+                command = tokenizeCommand(scan.nextLine());
             } 
             scan.close();
         }
     }
     
-    private String[] tokenizeCommand(String command) {
+    /**
+     * Runs "--batch file [--threads n] [--cache file]", solving the file's
+     * solves concurrently and printing one line per command in file order
+     */
+    private static void batch(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        SolutionCache cache = new SolutionCache(CACHE_CAPACITY);
+        try {
+            for (int i = 2; i < args.length; i += 2) {
+                if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[i + 1]);
+                }
+                else if (args[i].equals("--cache")) {
+                    try {
+                        cache = new SolutionCache(CACHE_CAPACITY, new File(args[i + 1]));
+                    }
+                    catch (IOException e) {
+                        // solve on with the cache in memory, as cache() does
+                        System.err.println("Could not open " + args[i + 1]);
+                    }
+                }
+                else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+            BufferedReader br = new BufferedReader(new FileReader(new File(args[1])));
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(System.out));
+            try {
+                new BatchSolver(threads, cache).run(br, bw);
+            }
+            finally {
+                br.close();
+                cache.close();
+            }
+        }
+        catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.err.println("Invalid input");
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    static String[] tokenizeCommand(String command) {
         String regex = "\"([^\"]*)\"|(\\S+)";
         Matcher m = Pattern.compile(regex).matcher(command);
         LinkedList<String> tokens = new LinkedList<String>();
@@ -73,14 +130,29 @@ public class Parser {
         performCommand(tokenizeCommand(command));
     }
     
+    /**
+     * Returns the layout of the current puzzle, so that new random states
+     * keep its shape, or the 3x3 one before any state is set
+     */
+    private BoardLayout layout() {
+        return (null != this.puzzle) ? this.puzzle.getState().getLayout()
+                                     : BoardLayout.STANDARD;
+    }
+    
     private void performCommand(String[] command) {
         switch (Command.valueOf(command[0].toUpperCase())) {
             case SETSTATE:
                 this.puzzle = new Puzzle(command[1]);
                 break;
             case RANDOMIZESTATE:
-                this.puzzle = new Puzzle();
-                this.puzzle.scrambleGoal(Integer.parseInt(command[1]));
+                this.puzzle = new Puzzle(layout());
+                if (2 < command.length) {
+                    this.puzzle.scrambleGoal(Integer.parseInt(command[1]),
+                                             Long.parseLong(command[2]));
+                }
+                else {
+                    this.puzzle.scrambleGoal(Integer.parseInt(command[1]));
+                }
                 break;
             case PRINTSTATE:
                 printState();
@@ -89,13 +161,33 @@ public class Parser {
                 move(command[1].toLowerCase());
                 break;
             case SOLVE:
-                solve(command[1].toLowerCase(), command[2].toLowerCase());
+                solve(command[1].toLowerCase(),
+                      (2 < command.length) ? command[2].toLowerCase() : "",
+                      (3 < command.length) ? command[3] : "");
                 break;
             case MAXNODES:
                 maxNodes(command[1]);
                 break;
+            case TIMELIMIT:
+                timeLimit(command[1]);
+                break;
             case NEWRANDOM:
-                this.puzzle = new Puzzle(Puzzle.generateRandomTileString());
+                this.puzzle = new Puzzle(Puzzle.generateRandomTileString(layout()));
+                break;
+            case FRONTIER:
+                frontier(command[1].toLowerCase());
+                break;
+            case OFFHEAP:
+                offHeap(command[1].toLowerCase());
+                break;
+            case CACHE:
+                cache(command[1]);
+                break;
+            case CACHESTATS:
+                cacheStats();
+                break;
+            case STATS:
+                stats();
                 break;
         }
     }
@@ -135,24 +227,156 @@ public class Parser {
         }
     }
     
-    private void solve(String algorithm, String option) {
+    private void solve(String algorithm, String option, String threads) {
         try {
             if (0 < maxNodes) {
                 this.puzzle.setMaxNodes(maxNodes);
             }
-            if (algorithm.equals("beam")) {
-                this.puzzle.beamSearch(Integer.parseInt(option));
+            this.puzzle.setTimeLimit(timeLimit);
+            this.puzzle.setFrontier(frontier);
+            this.puzzle.setOffHeapBytes(offHeapBytes);
+            this.puzzle.setCache(cache);
+            int threadCount;
+            if (!threads.isEmpty()) {
+                threadCount = Integer.parseInt(threads);
             }
-            else if (algorithm.equals("a-star")) {
-                this.puzzle.aStarSearch(option);
+            else if (algorithm.equals("hda-star")) {
+                threadCount = Runtime.getRuntime().availableProcessors();
+            }
+            else {
+                threadCount = 1;
             }
+            this.lastResult = this.puzzle.solve(algorithm, option, threadCount);
+            System.out.println(this.lastResult);
+            printMoves(this.lastResult.getMoves());
+        }
+        catch (IOException e) {
+            System.err.println(e.getMessage());
         }
         catch (NullPointerException e) {
             System.err.println("No state has been set for this puzzle");
         }
     }
     
+    /**
+     * Prints the moves of a solution as "move" commands would name them
+     */
+    private void printMoves(PuzzleState.Move[] moves) {
+        if (null == moves || 0 == moves.length) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Moves:");
+        for (PuzzleState.Move move : moves) {
+            sb.append(' ').append(move.toString().toLowerCase());
+        }
+        System.out.println(sb.toString());
+    }
+    
+    /**
+     * Backs the solution cache with a file, keeps it in memory only ("on")
+     * or turns it off ("off")
+     */
+    private void cache(String file) {
+        try {
+            if (null != this.cache) {
+                this.cache.close();
+            }
+            if (file.equalsIgnoreCase("off")) {
+                this.cache = null;
+            }
+            else if (file.equalsIgnoreCase("on")) {
+                this.cache = new SolutionCache(CACHE_CAPACITY);
+            }
+            else {
+                this.cache = new SolutionCache(CACHE_CAPACITY, new File(file));
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Could not open " + file);
+            this.cache = new SolutionCache(CACHE_CAPACITY);
+        }
+    }
+    
+    /**
+     * Prints the counters kept by the last solve
+     */
+    private void stats() {
+        if (null == this.lastResult) {
+            System.out.println("Nothing has been solved yet");
+        }
+        else if (null == this.lastResult.getStats()) {
+            System.out.println("The last solve was answered from the cache");
+        }
+        else {
+            System.out.println(this.lastResult.getStats());
+        }
+    }
+    
+    private void cacheStats() {
+        if (null == this.cache) {
+            System.out.println("The solution cache is off");
+            return;
+        }
+        System.out.println(this.cache.getHits() + " hit(s), "
+            + this.cache.getMisses() + " miss(es), "
+            + this.cache.size() + " solution(s) cached");
+    }
+    
     private void maxNodes(String maxNodes) {
         this.maxNodes = Integer.parseInt(maxNodes);
     }
+    
+    /**
+     * Sets the time limit of each solve in milliseconds; 0 removes it
+     */
+    private void timeLimit(String millis) {
+        long limit = Long.parseLong(millis);
+        if (0 > limit) {
+            throw new IllegalArgumentException(millis);
+        }
+        this.timeLimit = limit;
+    }
+    
+    /**
+     * Sets the off-heap closed set budget, in bytes with an optional k, m or
+     * g suffix; 0 keeps the closed set on the heap
+     */
+    private void offHeap(String bytes) {
+        if (bytes.isEmpty()) {
+            throw new IllegalArgumentException(bytes);
+        }
+        String units = "kmg";
+        long scale = 1;
+        int unit = units.indexOf(bytes.charAt(bytes.length() - 1));
+        String count = bytes;
+        if (0 <= unit) {
+            scale <<= 10 * (unit + 1);
+            count = bytes.substring(0, bytes.length() - 1);
+        }
+        long budget = Long.parseLong(count);
+        if (0 > budget) {
+            throw new IllegalArgumentException(bytes);
+        }
+        try {
+            this.offHeapBytes = Math.multiplyExact(budget, scale);
+        }
+        catch (ArithmeticException e) {
+            throw new IllegalArgumentException(bytes);
+        }
+    }
+    
+    private void frontier(String type) {
+        if (type.equals("heap")) {
+            this.frontier = Puzzle.FrontierType.HEAP;
+        }
+        else if (type.equals("bucket-lifo")) {
+            this.frontier = Puzzle.FrontierType.BUCKET_LIFO;
+        }
+        else if (type.equals("bucket-high-g")) {
+            this.frontier = Puzzle.FrontierType.BUCKET_HIGH_G;
+        }
+        else {
+            throw new IllegalArgumentException();
+        }
+    }
 }
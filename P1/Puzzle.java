@@ -6,19 +6,21 @@
  */
 package P1;
 
+import java.io.IOException;
 import java.lang.Math;
-import java.lang.StringBuilder;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.PriorityQueue;
-import java.util.Random;
 
 public class Puzzle {
     
+    /** The open list used by aStarSearch **/
+    public enum FrontierType { HEAP, BUCKET_LIFO, BUCKET_HIGH_G };
+    
     private PuzzleState state;
     private int maxNodes = 999999;
+    private FrontierType frontierType = FrontierType.HEAP;
+    private long offHeapBytes = 0;
+    private SolutionCache cache;
+    private long timeLimit = 0;
+    private CancellationToken cancellation;
     
     public Puzzle() {
         this("b12 345 678");
@@ -28,6 +30,15 @@ public class Puzzle {
         this.state = new PuzzleState(state);
     }
     
+    /**
+     * Constructs a solved puzzle of any layout
+     * @param  layout  the shape of the board
+     */
+    public Puzzle(BoardLayout layout) {
+        this.state = new PuzzleState(layout, layout.getGoal(),
+                                     PuzzleState.Heuristic.SUM_DISTANCES, 0);
+    }
+    
     public PuzzleState getState() {
         return this.state;
     }
@@ -36,214 +47,489 @@ public class Puzzle {
         this.maxNodes = n;
     }
     
-    public void scrambleGoal(int maxSteps) {
-        this.state = new PuzzleState("b12 345 678");
-        Random rand = new Random(maxSteps);
-        PriorityQueue<PuzzleState> children;
-        
-        for (int i = 0; i < maxSteps; i++) {
-            children = this.state.generateChildren();
-            int size = children.size();
-            for (int j = 0; j < (Math.abs(rand.nextInt()) % size) + 1; j++) {
-                this.state = children.poll();
-            }
-        }
-        this.state = new PuzzleState(this.state.getTiles(),
-                                     this.state.getHeuristic(), 0);
+    public void setFrontier(FrontierType type) {
+        this.frontierType = type;
     }
     
-    public void moveUp() {
-        int emptyIndex = this.state.findEmptyTile();
-        if (!this.state.isTopRow(emptyIndex)) {
-            String tiles = this.state.swapTiles(this.state.getTiles(),
-                                                emptyIndex, emptyIndex - 4);
-            this.state = new PuzzleState(tiles, this.state.getHeuristic());
+    /**
+     * Keeps the A* closed set off the Java heap, within a byte budget
+     * @param  bytes  the budget, or 0 to keep the closed set on the heap
+     */
+    public void setOffHeapBytes(long bytes) {
+        this.offHeapBytes = bytes;
+    }
+    
+    /**
+     * Stops each search after a time limit, with a partial result
+     * @param  millis  the limit, or 0 for none
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis;
+    }
+    
+    /**
+     * Lets another thread stop searches by cancelling a token
+     * @param  token  the token, or null
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.cancellation = token;
+    }
+    
+    /**
+     * Returns a token for one search, whose deadline starts now
+     */
+    private CancellationToken newToken() {
+        return new CancellationToken(this.timeLimit, this.cancellation);
+    }
+    
+    private static SearchResult.Status status(boolean solved, boolean stopped,
+                                              CancellationToken token) {
+        if (solved) {
+            return SearchResult.Status.SOLVED;
         }
-        else {
-            throw new IndexOutOfBoundsException();
+        else if (!stopped) {
+            return SearchResult.Status.FAILED;
         }
+        return token.isCancelled() ? SearchResult.Status.CANCELLED
+                                   : SearchResult.Status.TIMED_OUT;
     }
     
-    public void moveDown() {
-        int emptyIndex = this.state.findEmptyTile();
-        if (!this.state.isBottomRow(emptyIndex)) {
-            String tiles = this.state.swapTiles(this.state.getTiles(),
-                                                emptyIndex, emptyIndex + 4);
-            this.state = new PuzzleState(tiles, this.state.getHeuristic());
+    /**
+     * Shares a cache of solutions with other puzzles
+     * @param  cache  the cache, or null to always search
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+    
+    private StateMap newClosedSet() {
+        if (0 < this.offHeapBytes) {
+            // A* stores at most one board per node, and the nodes of the
+            // last expansion past the budget
+            return new OffHeapStateTable(this.offHeapBytes,
+                (int) Math.min(this.maxNodes + 4L, Integer.MAX_VALUE));
         }
-        else {
-            throw new IndexOutOfBoundsException();
+        return new StateTable();
+    }
+    
+    private Frontier newFrontier() {
+        switch (this.frontierType) {
+            case BUCKET_LIFO:
+                return new BucketQueue(BucketQueue.TieBreak.LIFO);
+            case BUCKET_HIGH_G:
+                return new BucketQueue(BucketQueue.TieBreak.HIGH_G);
+            default:
+                return new IndexedHeap();
         }
     }
     
+    /**
+     * Sets the puzzle to the end of a random walk from the goal, seeded by
+     * the number of steps so that a script scrambles the same way each run
+     * @param  maxSteps  the number of moves to make
+     */
+    public void scrambleGoal(int maxSteps) {
+        scrambleGoal(maxSteps, maxSteps);
+    }
+    
+    /**
+     * Sets the puzzle to the end of a seeded random walk from the goal that
+     * never undoes its last move
+     * @param  maxSteps  the number of moves to make
+     * @param  seed      the seed of the walk
+     */
+    public void scrambleGoal(int maxSteps, long seed) {
+        BoardLayout layout = this.state.getLayout();
+        long board = new InstanceGenerator(layout, seed).walk(maxSteps);
+        this.state = new PuzzleState(layout, board, this.state.getHeuristic(), 0);
+    }
+    
+    public void moveUp() {
+        move(PuzzleState.Move.UP);
+    }
+    
+    public void moveDown() {
+        move(PuzzleState.Move.DOWN);
+    }
+    
     public void moveLeft() {
-        int emptyIndex = this.state.findEmptyTile();
-        if (!this.state.isLeftColumn(emptyIndex)) {
-            String tiles = this.state.swapTiles(this.state.getTiles(),
-                                                emptyIndex, emptyIndex - 1);
-            this.state = new PuzzleState(tiles, this.state.getHeuristic());
-        }
-        else {
-            throw new IndexOutOfBoundsException();
-        }
+        move(PuzzleState.Move.LEFT);
     }
     
     public void moveRight() {
-        int emptyIndex = this.state.findEmptyTile();
-        if (!this.state.isRightColumn(emptyIndex)) {
-            String tiles = this.state.swapTiles(this.state.getTiles(),
-                                                emptyIndex, emptyIndex + 1);
-            this.state = new PuzzleState(tiles, this.state.getHeuristic());
+        move(PuzzleState.Move.RIGHT);
+    }
+    
+    private void move(PuzzleState.Move direction) {
+        BoardLayout layout = this.state.getLayout();
+        long board = layout.move(this.state.getBoard(), direction.ordinal());
+        if (-1L != board) {
+            this.state = new PuzzleState(layout, board, this.state.getHeuristic(), 0);
         }
         else {
             throw new IndexOutOfBoundsException();
         }
     }
     
-    public void beamSearch(int k) {
-        int nodeCounter = 1;
-        int plyCounter = 0;
-        PriorityQueue<PuzzleState> beam =
-            new PriorityQueue<PuzzleState>(k, new Comparator<PuzzleState>() {
-            @Override
-            public int compare(PuzzleState ps1, PuzzleState ps2) {
-                return ps1.getHval() - ps2.getHval();
-            }
-        });
-        beam.add(this.state);
-        PriorityQueue<PuzzleState> nextPly = new PriorityQueue<PuzzleState>();
-        long startTime = System.nanoTime();
-        
-        while (0 < this.state.getHval() && nodeCounter < this.maxNodes) {
-            for (PuzzleState s1 : beam) {
-                PriorityQueue<PuzzleState> children = s1.generateChildren();
-                for (PuzzleState s2 : children) {
-                    nextPly.add(s2);
-                    nodeCounter++;
-                }
-            }
-            beam.clear();
-            for (int i = 0; i < k && !nextPly.isEmpty(); i++) {
-                beam.add(nextPly.poll());
+    /**
+     * Solves the puzzle with the named algorithm, answering from the
+     * solution cache when it already holds a solution for this board that
+     * was found within the node budget and there is no time limit
+     * @param  algorithm  beam, a-star, ida-star, hda-star, table or
+     *                    bidirectional
+     * @param  option     the beam width, or the heuristic h1 or h2
+     * @param  threads    the number of threads for beam and hda-star
+     */
+    public SearchResult solve(String algorithm, String option, int threads)
+            throws IOException {
+        String variant = algorithm;
+        if (algorithm.equals("beam")) {
+            // the beam follows whatever heuristic the state already has
+            variant += " " + option + " " + this.state.getHeuristic();
+        }
+        else if (algorithm.equals("a-star")) {
+            // the frontier's tie-breaking changes the nodes generated
+            variant += " " + option + " " + this.frontierType;
+        }
+        else if (algorithm.equals("hda-star")) {
+            // and so does the split of the work between threads
+            variant += " " + option + " " + threads;
+        }
+        else if (!algorithm.equals("table")
+                && !algorithm.equals("bidirectional")) {
+            variant += " " + option;
+        }
+        BoardLayout layout = this.state.getLayout();
+        if (BoardLayout.STANDARD != layout) {
+            // boards of one size pack alike whatever their shape
+            variant += " " + layout;
+        }
+        long board = this.state.getBoard();
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        // a search under a time limit might not have finished in time
+        if (null != this.cache && 0 == this.timeLimit) {
+            long startTime = System.nanoTime();
+            SolutionCache.Solution solution =
+                this.cache.get(board, variant, this.maxNodes);
+            if (null != solution) {
+                PuzzleState.Heuristic h = parseHeuristic(option);
+                this.state = new PuzzleState(layout, layout.getGoal(),
+                    (null != h) ? h : this.state.getHeuristic(), 0);
+                return record(event, variant, layout, board, new SearchResult(
+                    layout.getGoal(), solution.getSteps(), solution.getMoves(),
+                    System.nanoTime() - startTime));
             }
-            this.state = beam.peek();
-            plyCounter++;
         }
         
-        long endTime = System.nanoTime();
-        String message;
-        if (0 == this.state.getHval()) {
-            message = "Solved with ";
+        SearchResult result;
+        if (algorithm.equals("beam")) {
+            result = beamSearch(Integer.parseInt(option), threads);
+        }
+        else if (algorithm.equals("a-star")) {
+            result = aStarSearch(option);
+        }
+        else if (algorithm.equals("ida-star")) {
+            result = idaStarSearch(option);
+        }
+        else if (algorithm.equals("hda-star")) {
+            result = parallelAStarSearch(option, threads);
+        }
+        else if (algorithm.equals("table")) {
+            result = tableSearch();
+        }
+        else if (algorithm.equals("bidirectional")) {
+            result = bidirectionalSearch();
         }
         else {
-            message = "Failed to solve after ";
+            throw new IllegalArgumentException(algorithm);
+        }
+        if (null != this.cache && result.isSolved()) {
+            this.cache.put(board, variant, result.getSteps(),
+                (int) Math.min(result.getNodeCount(), Integer.MAX_VALUE),
+                result.getMoves());
         }
-        long elapsedTime = (endTime - startTime) / 1000000;
-        message += nodeCounter + " node(s)";
-        message += ", " + plyCounter + " ply(s)";
-        message += ", " + this.state.getGval() + " step(s)";
-        message += ", " + elapsedTime + " ms elapsed";
-        System.out.println(message);
+        return record(event, variant, layout, board, result);
     }
     
-    public void aStarSearch(String heuristic) {
-        if (heuristic.equals("h1")) {
-            this.state = new PuzzleState(this.state.getTiles(),
-                                         PuzzleState.Heuristic.COUNT_MISPLACED, 0);
-        } else if (heuristic.equals("h2")) {
-            this.state = new PuzzleState(this.state.getTiles(),
-                                         PuzzleState.Heuristic.SUM_DISTANCES, 0);
-        } else {
-            System.err.println("Invalid input");
-            return;
+    /**
+     * Commits the SolveEvent of a finished solve if a recording wants it
+     */
+    private static SearchResult record(SolveEvent event, String variant,
+                                       BoardLayout layout, long board,
+                                       SearchResult result) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.algorithm = variant;
+            event.board = layout.unpack(board);
+            event.solved = result.isSolved();
+            event.status = result.getStatus().toString();
+            event.cached = result.isCached();
+            event.steps = result.getSteps();
+            SearchStats stats = result.getStats();
+            if (null != stats) {
+                event.expansions = stats.getExpansions();
+                event.generations = stats.getGenerations();
+                event.duplicates = stats.getDuplicates();
+                event.reopenings = stats.getReopenings();
+                event.openHighWater = stats.getOpenHighWater();
+                event.closedSize = stats.getClosedSize();
+                event.nodesPerSecond = stats.getNodesPerSecond();
+                event.fHistogram = stats.formatFHistogram();
+            }
+            event.commit();
         }
+        return result;
+    }
+    
+    public SearchResult beamSearch(int k) {
+        return beamSearch(k, 1);
+    }
+    
+    public SearchResult beamSearch(int k, int threads) {
+        PuzzleState.Heuristic h = this.state.getHeuristic();
+        BoardLayout layout = this.state.getLayout();
+        if (1 > k || 1 > threads) {
+            throw new IllegalArgumentException();
+        }
+        BeamSearch search = new BeamSearch(layout, h, k, this.maxNodes, threads);
+        CancellationToken token = newToken();
+        search.setCancellationToken(token);
+        long startTime = System.nanoTime();
+        boolean solved = layout.isSolvable(this.state.getBoard())
+            && search.run(this.state.getBoard());
+        long endTime = System.nanoTime();
+        
+        if (0 < search.getNodeCount()) {
+            this.state = new PuzzleState(layout, search.getBestBoard(), h, 0);
+        }
+        return new SearchResult(status(solved, search.isStopped(), token),
+            this.state.getBoard(), search.getNodeCount(),
+            search.getPlyCount() + " ply(s)",
+            solved ? search.getPlyCount() : 0,
+            solved ? search.getPath() : null, endTime - startTime,
+            search.getStats());
+    }
+    
+    public SearchResult aStarSearch(String heuristic) {
+        PuzzleState.Heuristic h = parseHeuristic(heuristic);
+        if (null == h) {
+            throw new IllegalArgumentException(heuristic);
+        }
+        BoardLayout layout = this.state.getLayout();
+        this.state = new PuzzleState(layout, this.state.getBoard(), h, 0);
         int nodeCounter = 1;
         
-        PriorityQueue<PuzzleState> frontier = new PriorityQueue<PuzzleState>();
-        frontier.offer(new PuzzleState(this.state.getTiles(),
-                                       this.state.getHeuristic(),
-                                       this.state.getGval()));
-        PriorityQueue<PuzzleState> explored = new PriorityQueue<PuzzleState>();
+        // every board ever generated gets an id; ids still in the frontier
+        // are open, the rest have been explored
+        NodeArena nodes = new NodeArena();
+        StateMap ids = newClosedSet();
+        Frontier frontier = newFrontier();
+        int current = nodes.add(this.state.getBoard(), 0, this.state.getHval(),
+                                NodeArena.NONE, NodeArena.NONE);
+        ids.put(this.state.getBoard(), current);
+        frontier.add(current, nodes.getFval(current), 0);
+        Successors children = new Successors();
+        SearchStats stats = new SearchStats();
+        CancellationToken token = newToken();
+        int best = current;
         
-        String message;
+        boolean solved;
+        boolean stopped = false;
         long startTime = System.nanoTime();
         while (true) { // the textbook uses a true loop
-            if (0 == frontier.size() || maxNodes < nodeCounter) {
-                message = "Failed to solve after ";
+            if (frontier.isEmpty() || maxNodes < nodeCounter || ids.isFull()) {
+                solved = false;
                 break;
             }
-            this.state = frontier.poll();
-            if (0 == this.state.getHval()) {
-                message = "Solved with ";
+            current = frontier.poll();
+            if (0 == nodes.getHval(current)) {
+                solved = true;
+                break;
+            }
+            stats.expanded(nodes.getFval(current));
+            if (nodes.getHval(current) < nodes.getHval(best)) {
+                best = current;
+            }
+            if (0 == (stats.getExpansions() & (CancellationToken.CHECK_INTERVAL - 1))
+                    && token.shouldStop()) {
+                solved = false;
+                stopped = true;
+                current = best;
                 break;
             }
-            explored.add(new PuzzleState(this.state.getTiles(),
-                                         this.state.getHeuristic(),
-                                         this.state.getGval()));
-            PriorityQueue<PuzzleState> children = this.state.generateChildren();
-            for (PuzzleState child : children) {
-                if (!explored.contains(child) && !frontier.contains(child)) {
-                    frontier.offer(new PuzzleState(child.getTiles(),
-                                                   child.getHeuristic(),
-                                                   child.getGval()));
-                    
+            int g = nodes.getGval(current) + 1;
+            layout.expand(nodes.getBoard(current), nodes.getHval(current),
+                          h, children);
+            stats.generated(children.size);
+            for (int i = 0; i < children.size; i++) {
+                long child = children.boards[i];
+                int id = ids.get(child);
+                if (-1 == id) {
+                    id = nodes.add(child, g, children.hVals[i],
+                                   current, children.moves[i]);
+                    ids.put(child, id);
+                    frontier.add(id, nodes.getFval(id), g);
                 }
-                else if (frontier.contains(child)) {
-                    PuzzleState[] temp = new PuzzleState[frontier.size()];
-                    temp = frontier.toArray(temp);
-                    for (PuzzleState ps : temp) {
-                        if (child.equals(ps) && child.getGval() < ps.getGval()) {
-                            frontier.remove(ps);
-                            frontier.offer(child);
-                        }
+                else {
+                    stats.duplicate();
+                    if (frontier.contains(id) && g < nodes.getGval(id)) {
+                        nodes.relink(id, g, current, children.moves[i]);
+                        frontier.decreaseKey(id, nodes.getFval(id), g);
                     }
                 }
                 nodeCounter++;
             }
+            stats.openSize(frontier.size());
         }
         long endTime = System.nanoTime();
-        long elapsedTime = (endTime - startTime) / 1000000;
-        message += nodeCounter + " node(s)";
-        message += ", " + this.state.getGval() + " step(s)";
-        message += ", " + elapsedTime + " ms elapsed";
-        System.out.println(message);
-        this.state = new PuzzleState(this.state.getTiles(), this.state.getHeuristic(), 0);
+        this.state = new PuzzleState(layout, nodes.getBoard(current), h, 0);
+        stats.setClosedSize(ids.size());
+        return new SearchResult(status(solved, stopped, token),
+            nodes.getBoard(current), nodeCounter, null, nodes.getGval(current),
+            solved ? nodes.path(current) : null, endTime - startTime, stats);
     }
     
-    public static String generateRandomTileString() {
-        ArrayList<String> tiles = new ArrayList<String>(Arrays.asList(
-            "b","1","2","3","4","5","6","7","8"
-        ));
-        Collections.shuffle(tiles);
-        tiles.add(3, " ");
-        tiles.add(7, " ");
-        StringBuilder sb = new StringBuilder();
-        for (String s : tiles) {
-            sb.append(s);
+    public SearchResult idaStarSearch(String heuristic) {
+        PuzzleState.Heuristic h = parseHeuristic(heuristic);
+        if (null == h) {
+            throw new IllegalArgumentException(heuristic);
+        }
+        BoardLayout layout = this.state.getLayout();
+        IdaStarSearch search = new IdaStarSearch(layout, h, this.maxNodes);
+        CancellationToken token = newToken();
+        search.setCancellationToken(token);
+        long startTime = System.nanoTime();
+        boolean solved = search.run(this.state.getBoard());
+        long endTime = System.nanoTime();
+        
+        if (solved) {
+            this.state = new PuzzleState(layout, layout.getGoal(), h, 0);
+        }
+        else if (search.isStopped()) {
+            this.state = new PuzzleState(layout, search.getBestBoard(), h, 0);
+        }
+        return new SearchResult(status(solved, search.isStopped(), token),
+            this.state.getBoard(), search.getNodeCount(),
+            search.getIterationCount() + " iteration(s)",
+            Math.max(search.getSteps(), 0), solved ? search.getMoves() : null,
+            endTime - startTime, search.getStats());
+    }
+    
+    public SearchResult parallelAStarSearch(String heuristic, int threads) {
+        PuzzleState.Heuristic h = parseHeuristic(heuristic);
+        if (null == h || 1 > threads) {
+            throw new IllegalArgumentException(heuristic);
+        }
+        BoardLayout layout = this.state.getLayout();
+        ParallelAStarSearch search =
+            new ParallelAStarSearch(layout, h, this.maxNodes, threads);
+        CancellationToken token = newToken();
+        search.setCancellationToken(token);
+        long startTime = System.nanoTime();
+        boolean solved;
+        try {
+            solved = search.run(this.state.getBoard());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            solved = false;
         }
-        if (!isSolvable(sb.toString())) {
-            return generateRandomTileString();
+        long endTime = System.nanoTime();
+        
+        if (solved) {
+            this.state = new PuzzleState(layout, layout.getGoal(), h, 0);
+        }
+        else if (search.isStopped()) {
+            this.state = new PuzzleState(layout, search.getBestBoard(), h, 0);
         }
-        return sb.toString();
+        return new SearchResult(status(solved, search.isStopped(), token),
+            this.state.getBoard(), search.getNodeCount(),
+            threads + " thread(s)", Math.max(search.getSteps(), 0), null,
+            endTime - startTime, search.getStats());
+    }
+    
+    /**
+     * Solves optimally by breadth-first search from both ends at once
+     */
+    public SearchResult bidirectionalSearch() {
+        BoardLayout layout = this.state.getLayout();
+        BidirectionalSearch search = new BidirectionalSearch(layout, this.maxNodes);
+        CancellationToken token = newToken();
+        search.setCancellationToken(token);
+        long startTime = System.nanoTime();
+        // an unsolvable board would sweep its whole half of the boards
+        boolean solved = layout.isSolvable(this.state.getBoard())
+            && search.run(this.state.getBoard());
+        long endTime = System.nanoTime();
+        
+        if (solved) {
+            this.state = new PuzzleState(layout, layout.getGoal(),
+                                         this.state.getHeuristic(), 0);
+        }
+        return new SearchResult(status(solved, search.isStopped(), token),
+            this.state.getBoard(), search.getNodeCount(),
+            search.getLevelCount() + " level(s)",
+            Math.max(search.getSteps(), 0), solved ? search.getMoves() : null,
+            endTime - startTime, search.getStats());
+    }
+    
+    /**
+     * Solves optimally by walking down the DistanceTable, which covers the
+     * 3x3 board alone
+     */
+    public SearchResult tableSearch() throws IOException {
+        if (BoardLayout.STANDARD != this.state.getLayout()
+                || !StateIndex.isSolvable(this.state.getBoard())) {
+            return new SearchResult(SearchResult.Status.FAILED,
+                this.state.getBoard(), 1, null, 0, null, 0, new SearchStats());
+        }
+        DistanceTable table = DistanceTable.getDefault();
+        long startTime = System.nanoTime();
+        PuzzleState.Move[] path = table.path(this.state.getBoard());
+        long endTime = System.nanoTime();
+        
+        this.state = new PuzzleState(PuzzleState.GOAL,
+                                     this.state.getHeuristic(), 0);
+        return new SearchResult(SearchResult.Status.SOLVED, PuzzleState.GOAL,
+            path.length + 1, null, path.length, path, endTime - startTime,
+            new SearchStats());
+    }
+    
+    private static PuzzleState.Heuristic parseHeuristic(String heuristic) {
+        if (heuristic.equals("h1")) {
+            return PuzzleState.Heuristic.COUNT_MISPLACED;
+        }
+        else if (heuristic.equals("h2")) {
+            return PuzzleState.Heuristic.SUM_DISTANCES;
+        }
+        return null;
+    }
+    
+    /**
+     * Returns a solvable 3x3 tile String drawn uniformly at random
+     */
+    public static String generateRandomTileString() {
+        return generateRandomTileString(BoardLayout.STANDARD);
+    }
+    
+    /**
+     * Returns a solvable tile String of any layout drawn uniformly at random
+     */
+    public static String generateRandomTileString(BoardLayout layout) {
+        return layout.unpack(new InstanceGenerator(layout).uniform());
     }
     
     public static boolean isSolvable(String tiles) {
+        BoardLayout layout;
+        long board;
         try {
-            PuzzleState.validateTileString(tiles);
+            layout = BoardLayout.of(tiles);
+            board = layout.pack(tiles);
         } catch (Exception e) {
             return false;
         }
-        tiles = tiles.replaceAll("b|\\s", "");
-        int inversions = 0;
-        for (int i = 0; i < tiles.length() - 1; i++) {
-            for (int j = i + 1; j < tiles.length(); j++) {
-                if (Character.getNumericValue(tiles.charAt(j)) <
-                    Character.getNumericValue(tiles.charAt(i))) {
-                    inversions++;
-                }
-            }
-        }
-        return (inversions % 2) == 0;
+        return layout.isSolvable(board);
     }
     
     /**
@@ -6,17 +6,36 @@
  */
 package P1;
 
-import java.lang.Math;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.PriorityQueue;
 
 public class PuzzleState implements Comparable<PuzzleState> {
 
     public enum Heuristic { COUNT_MISPLACED, SUM_DISTANCES };
 
-    /** The arrangement of the puzzle tiles **/
-    private String tiles;
+    /** Directions the empty tile can travel in **/
+    public enum Move { UP, DOWN, LEFT, RIGHT };
+
+    /**
+     * The static methods below work on the 3x3 board, BoardLayout.STANDARD;
+     * states of other layouts go through their own BoardLayout
+     */
+    public static final int WIDTH = 3;
+    public static final int SIZE = 9;
+
+    /**
+     * Tiles are packed one per 4-bit nibble, cell 0 in the lowest nibble,
+     * with the blank as tile 0. The cell holding the blank is cached in the
+     * nibble above the tiles so that moves never need to search for it.
+     */
+    public static final int BLANK_SHIFT = 4 * SIZE;
+    public static final long TILE_MASK = (1L << BLANK_SHIFT) - 1;
+
+    /** The packed form of "b12 345 678", where cell i holds tile i **/
+    public static final long GOAL = 0x876543210L;
+
+    /** The packed arrangement of the puzzle tiles **/
+    private long board;
+    private BoardLayout layout;
 
     private byte hVal = Byte.MAX_VALUE;
     private int gVal = 0;
@@ -34,27 +53,63 @@ public class PuzzleState implements Comparable<PuzzleState> {
     /**
      * Constructs a PuzzleState given an arrangement of tiles
      * @param  tiles      the tile arrangement in form "b12 345 678"
-     * @param  heuristic  TODO: describe
+     * @param  heuristic  the estimate used to calculate h(n)
      */
     public PuzzleState(String tiles, Heuristic heuristic) {
-        validateTileString(tiles);
-        this.tiles = tiles;
-        this.heuristic = heuristic;
-        calculateHval();
+        this(tiles, heuristic, 0);
     }
     
     /**
      * Constructs a PuzzleState given an arrangement of tiles
-     * @param  tiles      the tile arrangement in form "b12 345 678"
-     * @param  heuristic  TODO: describe
+     * @param  tiles      the tile arrangement in form "b12 345 678", or
+     *                    rows of any other BoardLayout
+     * @param  heuristic  the estimate used to calculate h(n)
+     * @param  gVal       the cost already spent reaching this state
      */
     public PuzzleState(String tiles, Heuristic heuristic, int gVal) {
-        validateTileString(tiles);
-        this.tiles = tiles;
+        this(BoardLayout.of(tiles), tiles, heuristic, gVal);
+    }
+
+    private PuzzleState(BoardLayout layout, String tiles, Heuristic heuristic,
+                        int gVal) {
+        this(layout, layout.pack(tiles), heuristic, gVal);
+    }
+
+    /**
+     * Constructs a PuzzleState from an already packed 3x3 board, skipping
+     * validation since the board was produced by pack() or move()
+     * @param  board      the packed tile arrangement
+     * @param  heuristic  the estimate used to calculate h(n)
+     * @param  gVal       the cost already spent reaching this state
+     */
+    public PuzzleState(long board, Heuristic heuristic, int gVal) {
+        this(BoardLayout.STANDARD, board, heuristic, gVal);
+    }
+
+    /**
+     * Constructs a PuzzleState from an already packed board of any layout
+     * @param  layout     the shape of the board
+     * @param  board      the packed tile arrangement
+     * @param  heuristic  the estimate used to calculate h(n)
+     * @param  gVal       the cost already spent reaching this state
+     */
+    public PuzzleState(BoardLayout layout, long board, Heuristic heuristic,
+                       int gVal) {
+        this.layout = layout;
+        this.board = board;
         this.heuristic = heuristic;
         this.gVal = gVal;
         calculateHval();
     }
+
+    private PuzzleState(BoardLayout layout, long board, Heuristic heuristic,
+                        int gVal, int hVal) {
+        this.layout = layout;
+        this.board = board;
+        this.heuristic = heuristic;
+        this.gVal = gVal;
+        this.hVal = (byte) hVal;
+    }
     
     /**
      * Returns f(n), the total cost of this state
@@ -84,8 +139,16 @@ public class PuzzleState implements Comparable<PuzzleState> {
         this.gVal = val;
     }
 
+    public long getBoard() {
+        return this.board;
+    }
+
+    public BoardLayout getLayout() {
+        return this.layout;
+    }
+
     public String getTiles() {
-        return this.tiles;
+        return this.layout.unpack(this.board);
     }
     
     public Heuristic getHeuristic() {
@@ -98,7 +161,7 @@ public class PuzzleState implements Comparable<PuzzleState> {
      */
     @Override
     public String toString() {
-        return this.tiles;
+        return this.layout.unpack(this.board);
     }
 
     @Override
@@ -108,16 +171,16 @@ public class PuzzleState implements Comparable<PuzzleState> {
 
     @Override
     public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        try {
-            final PuzzleState that = (PuzzleState) obj;
-            return this.getTiles().equals(that.getTiles());
-        }
-        catch (Exception e) {
+        if (!(obj instanceof PuzzleState)) {
             return false;
         }
+        PuzzleState that = (PuzzleState) obj;
+        return this.board == that.board && this.layout == that.layout;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.board);
     }
 
     /**
@@ -126,44 +189,102 @@ public class PuzzleState implements Comparable<PuzzleState> {
      */
     public PriorityQueue<PuzzleState> generateChildren() {
         PriorityQueue<PuzzleState> children = new PriorityQueue<PuzzleState>();
-        int emptyIndex = findEmptyTile();
 
         // swap the empty tile with tiles orthoganal to it
-        if (!isLeftColumn(emptyIndex)) {
-            children.add(new PuzzleState(swapTiles(
-                tiles, emptyIndex, emptyIndex - 1),
-                this.heuristic, this.gVal + 1));
-        }
-        if (!isRightColumn(emptyIndex)) {
-            children.add(new PuzzleState(swapTiles(
-                tiles, emptyIndex, emptyIndex + 1),
-                this.heuristic, this.gVal + 1));
-        }
-        if (!isTopRow(emptyIndex)) {
-            children.add(new PuzzleState(swapTiles(
-                tiles, emptyIndex, emptyIndex - 4),
-                this.heuristic, this.gVal + 1));
-        }
-        if (!isBottomRow(emptyIndex)) {
-            children.add(new PuzzleState(swapTiles(
-                tiles, emptyIndex, emptyIndex + 4),
-                this.heuristic, this.gVal + 1));
-        }
+        addChild(children, Move.LEFT);
+        addChild(children, Move.RIGHT);
+        addChild(children, Move.UP);
+        addChild(children, Move.DOWN);
         return children;
     }
     
-    public int findEmptyTile() {
-        int emptyIndex = -1;
-        for (int i = 0; i < this.tiles.length(); i++) {
-            if ('b' == this.tiles.charAt(i)) {
-                emptyIndex = i;
-            }
+    private void addChild(PriorityQueue<PuzzleState> children, Move move) {
+        long child = this.layout.move(this.board, move.ordinal());
+        if (-1L != child) {
+            children.add(new PuzzleState(this.layout, child, this.heuristic,
+                this.gVal + 1, this.layout.estimateAfter(this.board,
+                    move.ordinal(), this.hVal, this.heuristic)));
         }
-        return emptyIndex;
     }
     
     /**
-     * Throws an exception if the given tile string is not valid
+     * Writes the successors of a packed 3x3 board into a caller-owned
+     * buffer; see BoardLayout.expand()
+     */
+    public static int expand(long board, int hVal, Heuristic heuristic,
+                             Successors out) {
+        return BoardLayout.STANDARD.expand(board, hVal, heuristic, out);
+    }
+
+    public int findEmptyTile() {
+        return this.layout.blankOf(this.board);
+    }
+
+    /**
+     * Returns the cell index (0-8) of the blank in a packed 3x3 board
+     */
+    public static int blankOf(long board) {
+        return (int) (board >>> BLANK_SHIFT);
+    }
+
+    /**
+     * Returns the tile (0 for the blank) in a cell of a packed board
+     */
+    public static int tileAt(long board, int cell) {
+        return (int) (board >>> (cell << 2)) & 0xF;
+    }
+
+    /**
+     * Returns the 3x3 board reached by sliding the blank one cell in the
+     * given direction, or -1 if the blank is against that edge
+     */
+    public static long move(long board, Move move) {
+        return move(board, move.ordinal());
+    }
+
+    /**
+     * Returns h(n) of the 3x3 board reached by a legal move, given h(n) of
+     * the board before it, in O(1)
+     */
+    public static int estimateAfter(long board, int move, int hVal,
+                                    Heuristic heuristic) {
+        return BoardLayout.STANDARD.estimateAfter(board, move, hVal, heuristic);
+    }
+
+    /**
+     * Returns the move that undoes the given one. UP/DOWN and LEFT/RIGHT
+     * are declared in pairs, so the opposite differs only in the low bit.
+     */
+    public static int opposite(int move) {
+        return move ^ 1;
+    }
+
+    public static long move(long board, int move) {
+        return BoardLayout.STANDARD.move(board, move);
+    }
+
+    /**
+     * Packs a 3x3 tile string into its 64-bit form
+     * @param  tiles  the tile arrangement in form "b12 345 678"
+     * @return the packed board
+     */
+    public static long pack(String tiles) {
+        return BoardLayout.STANDARD.pack(tiles);
+    }
+
+    /**
+     * Unpacks a 3x3 board into its String form
+     * @param  board  the packed board
+     * @return the tile arrangement in form "b12 345 678"
+     */
+    public static String unpack(long board) {
+        return BoardLayout.STANDARD.unpack(board);
+    }
+
+    /**
+     * Throws an exception if the given tile string is not valid: at least
+     * two rows of at least two tiles, all rows as wide as the first, at most
+     * BoardLayout.MAX_CELLS tiles in all, and every tile exactly once
      */
     public static void validateTileString(String tiles) {
         class TileStringException extends RuntimeException {
@@ -171,26 +292,29 @@ public class PuzzleState implements Comparable<PuzzleState> {
                 super("The tile string is not in the correct format");
             }
         }
-        Character[] validTiles = { 'b','1','2','3','4','5','6','7','8' };
-        HashSet<Character> remainingTiles =
-            new HashSet<Character>(Arrays.asList(validTiles));
-
-        if (11 < tiles.length()) {
+        int width = tiles.indexOf(' ');
+        int rows = (0 < width) ? (tiles.length() + 1) / (width + 1) : 0;
+        int size = rows * width;
+        if (2 > width || 2 > rows || BoardLayout.MAX_CELLS < size
+                || size + rows - 1 != tiles.length()) {
             throw new TileStringException();
         }
 
+        // one bit per tile still to be seen, the blank being bit 0
+        int remainingTiles = (1 << size) - 1;
         for (int i = 0; i < tiles.length(); i++) {
-            if (0 == (i + 1) % 4) {
-                if (' ' != tiles.charAt(i)) {
+            char c = tiles.charAt(i);
+            if (0 == (i + 1) % (width + 1)) {
+                if (' ' != c) {
                     throw new TileStringException();
                 }
+                continue;
             }
-            else if (!remainingTiles.remove(tiles.charAt(i))) {
+            int tile = BoardLayout.tileOf(c);
+            if (tile < 0 || size <= tile || 0 == (remainingTiles & (1 << tile))) {
                 throw new TileStringException();
             }
-        }
-        if (!remainingTiles.isEmpty()) {
-            throw new TileStringException();
+            remainingTiles &= ~(1 << tile);
         }
     }
     
@@ -205,54 +329,54 @@ public class PuzzleState implements Comparable<PuzzleState> {
     }
     
     public boolean isLeftColumn(int i) {
-        return (0 == i % 4);
+        return (0 == i % this.layout.getWidth());
     }
 
     public boolean isRightColumn(int i) {
-        return (0 == (i - 2) % 4);
+        return (this.layout.getWidth() - 1 == i % this.layout.getWidth());
     }
 
     public boolean isTopRow(int i) {
-        return (0 <= i && i <= 2);
+        return (0 <= i && i < this.layout.getWidth());
     }
 
     public boolean isBottomRow(int i) {
-        return (8 <= i && i <= 10);
+        int size = this.layout.getSize();
+        return (size - this.layout.getWidth() <= i && i < size);
     }
 
     private void calculateHval() {
-        switch (this.heuristic) {
-            case COUNT_MISPLACED:
-                calculateMisplacedHval();
-                break;
-            case SUM_DISTANCES:
-                calculateDistanceHval();
-                break;
-        }
+        this.hVal = (byte) this.layout.estimate(this.board, this.heuristic);
     }
 
     public void calculateMisplacedHval() {
-        this.hVal = 0;
-        String goal = "b12 345 678";
-        for (int i = 0; i < goal.length(); i++) {
-            if (this.tiles.charAt(i) != goal.charAt(i) && goal.charAt(i) != ' ') {
-                this.hVal++;
-            }
-        }
+        this.hVal = (byte) this.layout.estimate(this.board, Heuristic.COUNT_MISPLACED);
     }
 
     public void calculateDistanceHval() {
-        this.hVal = 0;
-        char[] tiles = this.tiles.replace(" ", "").replace("b", "0").toCharArray();
-        int xDist = 0;
-        int yDist = 0;
-        for (int i = 0; i < tiles.length; i++) {
-            int tileVal = Character.getNumericValue(tiles[i]);
-            if (0 < tileVal) {
-                xDist = Math.abs(tileVal % 3 - i % 3);
-                yDist = Math.abs(tileVal / 3 - i / 3);
-                this.hVal += (xDist + yDist);
-            }
-        }
+        this.hVal = (byte) this.layout.estimate(this.board, Heuristic.SUM_DISTANCES);
+    }
+
+    /**
+     * Returns h(n) of a packed 3x3 board under the given heuristic
+     */
+    public static int estimate(long board, Heuristic heuristic) {
+        return BoardLayout.STANDARD.estimate(board, heuristic);
+    }
+
+    /**
+     * Returns the number of tiles of a 3x3 board out of place, the blank
+     * included
+     */
+    public static int countMisplaced(long board) {
+        return estimate(board, Heuristic.COUNT_MISPLACED);
+    }
+
+    /**
+     * Returns the sum of the Manhattan distances of the numbered tiles of a
+     * 3x3 board from their goal cells
+     */
+    public static int sumDistances(long board) {
+        return estimate(board, Heuristic.SUM_DISTANCES);
     }
 }
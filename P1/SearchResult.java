@@ -0,0 +1,158 @@
+/**
+ * SearchResult
+ *
+ * The outcome of one solve: whether the goal was reached, how much work it
+ * took and the path found, if the search recorded one. A search stopped by
+ * its CancellationToken still reports the work done and the best board it
+ * reached, the one with the lowest h(n).
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.20
+ */
+package P1;
+
+public class SearchResult {
+
+    public enum Status { SOLVED, FAILED, TIMED_OUT, CANCELLED };
+
+    private final Status status;
+    private final long board;
+    private final long nodes;
+    private final String detail;
+    private final int steps;
+    private final PuzzleState.Move[] moves;
+    private final long elapsedNanos;
+    private final boolean cached;
+    private final SearchStats stats;
+
+    /**
+     * Constructs the result of a search that ran
+     * @param  status        how the search ended
+     * @param  board         the goal if solved, otherwise the board the
+     *                       search left the puzzle in
+     * @param  nodes         the number of nodes generated
+     * @param  detail        an extra count to report, such as "3 ply(s)", or
+     *                       null
+     * @param  steps         the length of the path found
+     * @param  moves         the moves of the blank along the path, or null if
+     *                       the search does not record them
+     * @param  elapsedNanos  the time taken
+     * @param  stats         the counters kept by the search
+     */
+    public SearchResult(Status status, long board, long nodes, String detail,
+                        int steps, PuzzleState.Move[] moves,
+                        long elapsedNanos, SearchStats stats) {
+        this(status, board, nodes, detail, steps, moves, elapsedNanos, false,
+             stats);
+    }
+
+    /**
+     * Constructs the result of a solve answered from the SolutionCache
+     * @param  goal          the packed goal
+     * @param  steps         the length of the path
+     * @param  moves         the moves of the blank along the path, or null
+     * @param  elapsedNanos  the time taken by the lookup
+     */
+    public SearchResult(long goal, int steps, PuzzleState.Move[] moves,
+                        long elapsedNanos) {
+        this(Status.SOLVED, goal, 0, null, steps, moves,
+             elapsedNanos, true, null);
+    }
+
+    private SearchResult(Status status, long board, long nodes, String detail,
+                         int steps, PuzzleState.Move[] moves,
+                         long elapsedNanos, boolean cached, SearchStats stats) {
+        this.status = status;
+        this.board = board;
+        this.nodes = nodes;
+        this.detail = detail;
+        this.steps = steps;
+        this.moves = moves;
+        this.elapsedNanos = elapsedNanos;
+        this.cached = cached;
+        this.stats = stats;
+        if (null != stats) {
+            stats.setElapsedNanos(elapsedNanos);
+        }
+    }
+
+    public Status getStatus() {
+        return this.status;
+    }
+
+    public boolean isSolved() {
+        return Status.SOLVED == this.status;
+    }
+
+    /**
+     * Returns the packed goal if solved, otherwise the board the search
+     * ended on
+     */
+    public long getBoard() {
+        return this.board;
+    }
+
+    public long getNodeCount() {
+        return this.nodes;
+    }
+
+    public int getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Returns the moves of the blank from the start to the goal, or null if
+     * they were not recorded
+     */
+    public PuzzleState.Move[] getMoves() {
+        return this.moves;
+    }
+
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    public boolean isCached() {
+        return this.cached;
+    }
+
+    /**
+     * Returns the counters kept by the search, or null for a cached result
+     */
+    public SearchStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns the one-line summary Parser prints after a solve
+     * @return  result String
+     */
+    @Override
+    public String toString() {
+        if (this.cached) {
+            return "Solved from cache, " + this.steps + " step(s), "
+                + (this.elapsedNanos / 1000) + " us elapsed";
+        }
+        String message;
+        switch (this.status) {
+            case SOLVED:
+                message = "Solved with ";
+                break;
+            case TIMED_OUT:
+                message = "Timed out after ";
+                break;
+            case CANCELLED:
+                message = "Cancelled after ";
+                break;
+            default:
+                message = "Failed to solve after ";
+        }
+        message += this.nodes + " node(s)";
+        if (null != this.detail) {
+            message += ", " + this.detail;
+        }
+        message += ", " + this.steps + " step(s)";
+        message += ", " + (this.elapsedNanos / 1000000) + " ms elapsed";
+        return message;
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * SearchStats
+ *
+ * Counters kept by a search while it runs: nodes expanded and generated,
+ * generated boards that were already stored, closed nodes reopened by a
+ * shorter path, the largest the open list grew, the number of boards
+ * stored when the search ended, and how many nodes were expanded at each
+ * f(n). Every update is a plain field increment, cheap enough to leave on.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.25
+ */
+package P1;
+
+import java.util.Arrays;
+
+public class SearchStats {
+
+    private long expansions = 0;
+    private long generations = 0;
+    private long duplicates = 0;
+    private long reopenings = 0;
+    private long openHighWater = 0;
+    private long closedSize = 0;
+    private long elapsedNanos = 0;
+    private long[] fHistogram = new long[64];
+
+    /**
+     * Records the expansion of a node
+     * @param  f  f(n) of the node
+     */
+    public void expanded(int f) {
+        this.expansions++;
+        if (f >= this.fHistogram.length) {
+            this.fHistogram = Arrays.copyOf(this.fHistogram,
+                Math.max(f + 1, this.fHistogram.length << 1));
+        }
+        this.fHistogram[f]++;
+    }
+
+    public void generated(int count) {
+        this.generations += count;
+    }
+
+    public void duplicate() {
+        this.duplicates++;
+    }
+
+    public void duplicates(long count) {
+        this.duplicates += count;
+    }
+
+    public void reopened() {
+        this.reopenings++;
+    }
+
+    /**
+     * Records the current size of the open list
+     */
+    public void openSize(long size) {
+        if (size > this.openHighWater) {
+            this.openHighWater = size;
+        }
+    }
+
+    public void setClosedSize(long size) {
+        this.closedSize = size;
+    }
+
+    public void setElapsedNanos(long nanos) {
+        this.elapsedNanos = nanos;
+    }
+
+    /**
+     * Adds the counts of another search, such as another worker of the
+     * same search; open-list peaks are summed, which bounds the combined peak
+     */
+    public void add(SearchStats other) {
+        this.expansions += other.expansions;
+        this.generations += other.generations;
+        this.duplicates += other.duplicates;
+        this.reopenings += other.reopenings;
+        this.openHighWater += other.openHighWater;
+        this.closedSize += other.closedSize;
+        if (other.fHistogram.length > this.fHistogram.length) {
+            this.fHistogram = Arrays.copyOf(this.fHistogram,
+                                            other.fHistogram.length);
+        }
+        for (int f = 0; f < other.fHistogram.length; f++) {
+            this.fHistogram[f] += other.fHistogram[f];
+        }
+    }
+
+    public long getExpansions() {
+        return this.expansions;
+    }
+
+    public long getGenerations() {
+        return this.generations;
+    }
+
+    public long getDuplicates() {
+        return this.duplicates;
+    }
+
+    public long getReopenings() {
+        return this.reopenings;
+    }
+
+    public long getOpenHighWater() {
+        return this.openHighWater;
+    }
+
+    public long getClosedSize() {
+        return this.closedSize;
+    }
+
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * Returns nodes generated per second of search, or 0 if no time passed
+     */
+    public double getNodesPerSecond() {
+        return (0 == this.elapsedNanos) ? 0
+            : this.generations * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * Returns the number of nodes expanded at each f(n), indexed by f(n)
+     */
+    public long[] getFHistogram() {
+        int length = this.fHistogram.length;
+        while (0 < length && 0 == this.fHistogram[length - 1]) {
+            length--;
+        }
+        return Arrays.copyOf(this.fHistogram, length);
+    }
+
+    /**
+     * Returns the histogram as "f:count" pairs for the f(n) values seen
+     */
+    public String formatFHistogram() {
+        StringBuilder sb = new StringBuilder();
+        long[] histogram = getFHistogram();
+        for (int f = 0; f < histogram.length; f++) {
+            if (0 < histogram[f]) {
+                if (0 < sb.length()) {
+                    sb.append(' ');
+                }
+                sb.append(f).append(':').append(histogram[f]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the counters, one per line
+     * @return  stats String
+     */
+    @Override
+    public String toString() {
+        String s = "expansions:      " + this.expansions;
+        s += "\ngenerations:     " + this.generations;
+        s += "\nduplicates:      " + this.duplicates;
+        s += "\nreopenings:      " + this.reopenings;
+        s += "\nopen high-water: " + this.openHighWater;
+        s += "\nclosed size:     " + this.closedSize;
+        s += "\nnodes/sec:       " + Math.round(getNodesPerSecond());
+        s += "\nf histogram:     " + formatFHistogram();
+        return s;
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * SolutionCache
+ *
+ * Solutions already found, keyed by the packed board and a variant naming
+ * the algorithm and its options, so that a board solved before is answered
+ * without searching. Each solution keeps the number of nodes its search
+ * generated, and is only given out to a search allowed as many. Recently
+ * used solutions are held in an LRU map. When the cache is backed by a
+ * file, every solution is also appended to that file through a memory
+ * mapping, and the file is indexed when the cache is opened, so solutions
+ * outlive the run.
+ *
+ * A record is the board, the variant as a length-prefixed ASCII string,
+ * the step count, the node count and the number of moves recorded, then
+ * the moves packed four to a byte. The header holds a magic number and the
+ * offset of the end of the last complete record, which is only advanced
+ * once a record has been written, so a record torn by a crash is ignored
+ * when reopened. A file whose records do not fit that offset is damaged.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.22
+ */
+package P1;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SolutionCache {
+
+    /** "P1SC" **/
+    private static final int MAGIC = 0x50315343;
+    private static final int HEADER_BYTES = 8;
+    private static final int INITIAL_MAPPING = 1 << 16;
+
+    /** A cached solution **/
+    public static final class Solution {
+
+        private final int steps;
+        private final int nodes;
+        private final PuzzleState.Move[] moves;
+
+        Solution(int steps, int nodes, PuzzleState.Move[] moves) {
+            this.steps = steps;
+            this.nodes = nodes;
+            this.moves = moves;
+        }
+
+        public int getSteps() {
+            return this.steps;
+        }
+
+        /**
+         * Returns the number of nodes the search that found the solution
+         * generated
+         */
+        public int getNodes() {
+            return this.nodes;
+        }
+
+        /**
+         * Returns the moves of the blank, or null if the search that found
+         * the solution did not record them
+         */
+        public PuzzleState.Move[] getMoves() {
+            return (null == this.moves) ? null : this.moves.clone();
+        }
+    }
+
+    private static final class Key {
+
+        final long board;
+        final String variant;
+
+        Key(long board, String variant) {
+            this.board = board;
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.board == other.board
+                && this.variant.equals(other.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * StateTable.hash(this.board) + this.variant.hashCode();
+        }
+    }
+
+    /** A LinkedHashMap in access order that drops its eldest entry **/
+    private static final class LruMap extends LinkedHashMap<Key, Solution> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        LruMap(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Solution> eldest) {
+            return size() > this.capacity;
+        }
+    }
+
+    private final LruMap recent;
+
+    /** Offset of every record in the file, or null without a file **/
+    private HashMap<Key, Integer> offsets;
+    private RandomAccessFile file;
+    private MappedByteBuffer mapping;
+    private int end;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Constructs a SolutionCache held in memory only
+     * @param  capacity  the number of solutions kept
+     */
+    public SolutionCache(int capacity) {
+        this.recent = new LruMap(capacity);
+    }
+
+    /**
+     * Constructs a SolutionCache backed by a file, which is created if it
+     * does not exist
+     * @param  capacity  the number of solutions kept in memory
+     * @param  file      where every solution is kept
+     */
+    public SolutionCache(int capacity, File file) throws IOException {
+        this(capacity);
+        this.offsets = new HashMap<Key, Integer>();
+        this.file = new RandomAccessFile(file, "rw");
+        long fileLength = this.file.length();
+        if (Integer.MAX_VALUE < fileLength) {
+            close();
+            throw new IOException(file + " is too large");
+        }
+        map(Math.max((int) fileLength, INITIAL_MAPPING));
+        if (0 == fileLength) {
+            this.mapping.putInt(0, MAGIC);
+            this.mapping.putInt(4, HEADER_BYTES);
+        }
+        else if (MAGIC != this.mapping.getInt(0)) {
+            close();
+            throw new IOException(file + " is not a solution cache");
+        }
+        this.end = this.mapping.getInt(4);
+        if (HEADER_BYTES > this.end || (0 < fileLength && fileLength < this.end)) {
+            close();
+            throw new IOException(file + " is damaged");
+        }
+        for (int offset = HEADER_BYTES; offset < this.end; ) {
+            // the fixed fields, then the whole record, must end by this.end
+            int length = (offset + 9 <= this.end)
+                ? this.mapping.get(offset + 8) & 0xFF : -1;
+            int count = (0 <= length && offset + 21 + length <= this.end)
+                ? this.mapping.getInt(offset + 17 + length) : -1;
+            if (0 > count || this.end - offset < recordBytes(length, count)) {
+                close();
+                throw new IOException(file + " is damaged");
+            }
+            Key key = new Key(this.mapping.getLong(offset),
+                              readVariant(offset + 9, length));
+            this.offsets.put(key, offset);
+            offset += (int) recordBytes(length, count);
+        }
+    }
+
+    /**
+     * Returns the solution cached for a board, or null if there is none
+     * that the search could have found within its node budget
+     * @param  board     the packed board
+     * @param  variant   the algorithm and options that solved it
+     * @param  maxNodes  the node budget of the search asking
+     */
+    public synchronized Solution get(long board, String variant, int maxNodes) {
+        Key key = new Key(board, variant);
+        Solution solution = this.recent.get(key);
+        if (null == solution && null != this.offsets) {
+            Integer offset = this.offsets.get(key);
+            if (null != offset) {
+                solution = read(offset);
+                this.recent.put(key, solution);
+            }
+        }
+        if (null == solution || maxNodes < solution.getNodes()) {
+            solution = null;
+            this.misses++;
+        }
+        else {
+            this.hits++;
+        }
+        return solution;
+    }
+
+    /**
+     * Caches a solution, appending it to the file if it is not there yet
+     * @param  board    the packed board
+     * @param  variant  the algorithm and options that solved it, in ASCII
+     * @param  steps    the length of the path
+     * @param  nodes    the number of nodes the search generated
+     * @param  moves    the moves of the blank along the path, or null
+     */
+    public synchronized void put(long board, String variant, int steps,
+                                 int nodes, PuzzleState.Move[] moves)
+            throws IOException {
+        Key key = new Key(board, variant);
+        this.recent.put(key, new Solution(steps, nodes,
+            (null == moves) ? null : moves.clone()));
+        if (null != this.offsets && !this.offsets.containsKey(key)) {
+            this.offsets.put(key, append(key, steps, nodes, moves));
+        }
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of solutions cached, in memory or in the file
+     */
+    public synchronized int size() {
+        return (null == this.offsets) ? this.recent.size() : this.offsets.size();
+    }
+
+    /**
+     * Writes out the file and releases it; the in-memory tier stays usable
+     */
+    public synchronized void close() throws IOException {
+        if (null != this.file) {
+            if (null != this.mapping) {
+                this.mapping.force();
+            }
+            this.file.close();
+            this.file = null;
+            this.mapping = null;
+            this.offsets = null;
+        }
+    }
+
+    private void map(int bytes) throws IOException {
+        this.mapping = this.file.getChannel().map(
+            FileChannel.MapMode.READ_WRITE, 0, bytes);
+    }
+
+    private static long recordBytes(int variantLength, int moveCount) {
+        return 8 + 1 + variantLength + 4 + 4 + 4 + (moveCount + 3L) / 4;
+    }
+
+    private String readVariant(int offset, int length) {
+        byte[] bytes = new byte[length];
+        this.mapping.get(offset, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private Solution read(int offset) {
+        int length = this.mapping.get(offset + 8) & 0xFF;
+        int position = offset + 9 + length;
+        int steps = this.mapping.getInt(position);
+        int nodes = this.mapping.getInt(position + 4);
+        int count = this.mapping.getInt(position + 8);
+        position += 12;
+        if (steps != count) {
+            return new Solution(steps, nodes, null);
+        }
+        PuzzleState.Move[] all = PuzzleState.Move.values();
+        PuzzleState.Move[] moves = new PuzzleState.Move[count];
+        for (int i = 0; i < count; i++) {
+            int packed = this.mapping.get(position + (i >>> 2));
+            moves[i] = all[(packed >>> ((i & 3) << 1)) & 3];
+        }
+        return new Solution(steps, nodes, moves);
+    }
+
+    private int append(Key key, int steps, int nodes, PuzzleState.Move[] moves)
+            throws IOException {
+        byte[] variant = key.variant.getBytes(StandardCharsets.US_ASCII);
+        if (0xFF < variant.length) {
+            throw new IllegalArgumentException(key.variant);
+        }
+        int count = (null == moves) ? 0 : moves.length;
+        int bytes = (int) recordBytes(variant.length, count);
+        if (Integer.MAX_VALUE - bytes < this.end) {
+            throw new IOException("The solution cache file is full");
+        }
+        if (this.end + bytes > this.mapping.capacity()) {
+            map((int) Math.min(2L * (this.end + bytes), Integer.MAX_VALUE));
+        }
+        int offset = this.end;
+        this.mapping.putLong(offset, key.board);
+        this.mapping.put(offset + 8, (byte) variant.length);
+        this.mapping.put(offset + 9, variant);
+        int position = offset + 9 + variant.length;
+        this.mapping.putInt(position, steps);
+        this.mapping.putInt(position + 4, nodes);
+        this.mapping.putInt(position + 8, count);
+        position += 12;
+        for (int i = 0; i < count; i += 4) {
+            int packed = 0;
+            for (int j = i; j < Math.min(i + 4, count); j++) {
+                packed |= moves[j].ordinal() << ((j & 3) << 1);
+            }
+            this.mapping.put(position + (i >>> 2), (byte) packed);
+        }
+        // only now is the record part of the file
+        this.end += bytes;
+        this.mapping.putInt(4, this.end);
+        return offset;
+    }
+}
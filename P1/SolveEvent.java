@@ -0,0 +1,72 @@
+/**
+ * SolveEvent
+ *
+ * A JDK Flight Recorder event for each solve, carrying its SearchStats.
+ * Puzzle only fills in the fields when a recording has the event enabled,
+ * so without one an event costs an allocation and a check.
+ *
+ *   java -XX:StartFlightRecording=filename=solves.jfr P1.Parser example1.txt
+ *   jfr print --events P1.Solve solves.jfr
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.25
+ */
+package P1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("P1.Solve")
+@Label("Puzzle Solve")
+@Category("P1")
+@Description("One solve of a puzzle board")
+@StackTrace(false)
+class SolveEvent extends Event {
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Board")
+    String board;
+
+    @Label("Solved")
+    boolean solved;
+
+    @Label("Status")
+    String status;
+
+    @Label("Cached")
+    boolean cached;
+
+    @Label("Steps")
+    int steps;
+
+    @Label("Expansions")
+    long expansions;
+
+    @Label("Generations")
+    long generations;
+
+    @Label("Duplicates")
+    long duplicates;
+
+    @Label("Reopenings")
+    long reopenings;
+
+    @Label("Open High-Water Mark")
+    long openHighWater;
+
+    @Label("Closed Size")
+    long closedSize;
+
+    @Label("Nodes per Second")
+    double nodesPerSecond;
+
+    @Label("f Histogram")
+    @Description("Nodes expanded at each f(n), as f:count pairs")
+    String fHistogram;
+}
@@ -0,0 +1,72 @@
+/**
+ * StateBitmap
+ *
+ * A set of solvable boards stored as one bit per StateIndex rank, 22 KB
+ * for the whole 8-puzzle.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.14
+ */
+package P1;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+public class StateBitmap implements StateSet {
+
+    private static final VarHandle WORDS =
+        MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] words = new long[(StateIndex.SIZE + 63) >>> 6];
+
+    /**
+     * Adds a board to the set
+     * @param  board  a solvable packed board
+     * @return  true if the board was not already in the set
+     */
+    @Override
+    public boolean add(long board) {
+        int rank = StateIndex.rank(board);
+        long bit = 1L << rank;
+        int word = rank >>> 6;
+        if (0 != (this.words[word] & bit)) {
+            return false;
+        }
+        this.words[word] |= bit;
+        return true;
+    }
+
+    /**
+     * Adds a board to the set; safe to call from several threads at once,
+     * and exactly one caller sees true for each board
+     * @param  board  a solvable packed board
+     * @return  true if the board was not already in the set
+     */
+    @Override
+    public boolean addConcurrent(long board) {
+        int rank = StateIndex.rank(board);
+        long bit = 1L << rank;
+        int word = rank >>> 6;
+        long old = (long) WORDS.getVolatile(this.words, word);
+        while (0 == (old & bit)) {
+            if (WORDS.compareAndSet(this.words, word, old, old | bit)) {
+                return true;
+            }
+            old = (long) WORDS.getVolatile(this.words, word);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(long board) {
+        int rank = StateIndex.rank(board);
+        return 0 != (this.words[rank >>> 6] & (1L << rank));
+    }
+
+    /**
+     * Does nothing, since there is a bit for every board already
+     */
+    @Override
+    public void reserve(int count) {
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * StateIndex
+ *
+ * Maps each solvable 8-puzzle board to a dense index in [0, 181440) and back.
+ * The index is the blank's cell times 20160 plus the Lehmer rank of the
+ * eight numbered tiles within the even-permutation half. On a board of odd
+ * width a move never changes the inversion parity of the numbered tiles, so
+ * the solvable boards are exactly those with an even Lehmer digit sum, and
+ * the second-to-last digit is implied by the others.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.2
+ */
+package P1;
+
+public class StateIndex {
+
+    /** The number of solvable boards, 9! / 2 **/
+    public static final int SIZE = 181440;
+
+    private static final int TILES = PuzzleState.SIZE - 1;
+
+    /** The number of even arrangements of the numbered tiles, 8! / 2 **/
+    private static final int PERMUTATIONS = SIZE / PuzzleState.SIZE;
+
+    /** WEIGHTS[i] is (7 - i)! / 2, the place value of Lehmer digit i **/
+    private static final int[] WEIGHTS = { 2520, 360, 60, 12, 3, 1 };
+
+    private StateIndex() {}
+
+    /**
+     * Returns the index of a solvable board
+     * @param  board  the packed board
+     * @return an int in [0, SIZE), 0 being the goal
+     * @throws IllegalArgumentException  if the board is not solvable
+     */
+    public static int rank(long board) {
+        int seen = 0;
+        int digitSum = 0;
+        int rank = 0;
+        int i = 0;
+        for (int cell = 0; cell < PuzzleState.SIZE; cell++) {
+            int tile = PuzzleState.tileAt(board, cell);
+            if (0 == tile) {
+                continue;
+            }
+            // smaller tiles not yet seen are exactly the ones to the right
+            int below = (1 << (tile - 1)) - 1;
+            int digit = tile - 1 - Integer.bitCount(seen & below);
+            seen |= 1 << (tile - 1);
+            digitSum += digit;
+            if (i < WEIGHTS.length) {
+                rank += digit * WEIGHTS[i];
+            }
+            i++;
+        }
+        if (0 != (digitSum & 1)) {
+            throw new IllegalArgumentException("The board is not solvable");
+        }
+        return PuzzleState.blankOf(board) * PERMUTATIONS + rank;
+    }
+
+    /**
+     * Returns the board with the given index
+     * @param  index  an int in [0, SIZE)
+     * @return the packed board
+     */
+    public static long unrank(int index) {
+        int blank = index / PERMUTATIONS;
+        int rank = index % PERMUTATIONS;
+
+        long board = (long) blank << PuzzleState.BLANK_SHIFT;
+        int unused = (1 << TILES) - 1;
+        int digitSum = 0;
+        int cell = 0;
+        for (int i = 0; i < TILES; i++, cell++) {
+            int digit;
+            if (i < WEIGHTS.length) {
+                digit = rank / WEIGHTS[i];
+                rank %= WEIGHTS[i];
+            }
+            else {
+                // the last two digits are forced by the parity of the rest
+                digit = (TILES - 2 == i) ? digitSum & 1 : 0;
+            }
+            digitSum += digit;
+            if (cell == blank) {
+                cell++;
+            }
+            // take the digit-th smallest tile that is still unused
+            int bits = unused;
+            for (; 0 < digit; digit--) {
+                bits &= bits - 1;
+            }
+            int tile = Integer.numberOfTrailingZeros(bits) + 1;
+            unused &= ~(1 << (tile - 1));
+            board |= (long) tile << (cell << 2);
+        }
+        return board;
+    }
+
+    /**
+     * Returns true if the numbered tiles of a board are an even permutation,
+     * which for the 3x3 board means the goal can be reached from it
+     * @param  board  the packed board
+     */
+    public static boolean isSolvable(long board) {
+        return BoardLayout.STANDARD.isSolvable(board);
+    }
+}
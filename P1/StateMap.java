@@ -0,0 +1,32 @@
+/**
+ * StateMap
+ *
+ * Maps packed boards to node ids, serving as the closed set of a search.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.21
+ */
+package P1;
+
+public interface StateMap {
+
+    /**
+     * Returns the value stored for a board, or -1 if there is none
+     * @param  board  the packed board
+     */
+    public int get(long board);
+
+    /**
+     * Stores a value for a board, replacing any value already stored
+     * @param  board  the packed board
+     * @param  value  a non-negative value
+     */
+    public void put(long board, int value);
+
+    public int size();
+
+    /**
+     * Returns true if no further boards can be added
+     */
+    public boolean isFull();
+}
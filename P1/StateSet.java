@@ -0,0 +1,37 @@
+/**
+ * StateSet
+ *
+ * A set of packed boards that threads may add to at once, serving as the
+ * visited set of a beam.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.11.1
+ */
+package P1;
+
+public interface StateSet {
+
+    /**
+     * Adds a board to the set
+     * @param  board  a solvable packed board
+     * @return  true if the board was not already in the set
+     */
+    public boolean add(long board);
+
+    /**
+     * Adds a board to the set; safe to call from several threads at once,
+     * and exactly one caller sees true for each board
+     * @param  board  a solvable packed board
+     * @return  true if the board was not already in the set
+     */
+    public boolean addConcurrent(long board);
+
+    public boolean contains(long board);
+
+    /**
+     * Makes room for more boards, so that concurrent adds of up to that
+     * many never need the set to grow; not safe while boards are added
+     * @param  count  the number of boards about to be added at most
+     */
+    public void reserve(int count);
+}
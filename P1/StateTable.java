@@ -0,0 +1,126 @@
+/**
+ * StateTable
+ *
+ * An open-addressing hash table from packed boards to int values, used by
+ * the searches to find the node already stored for a board in O(1).
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.4
+ */
+package P1;
+
+import java.util.Arrays;
+
+public class StateTable implements StateMap {
+
+    /** No packed board is 0, since the numbered tiles are never 0 **/
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    public StateTable() {
+        this(1024);
+    }
+
+    /**
+     * Constructs a StateTable that holds the given number of boards before
+     * it needs to grow
+     * @param  expected  the number of boards expected
+     */
+    public StateTable(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(2 * expected - 1, 16)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns false, since the table grows as needed
+     */
+    @Override
+    public boolean isFull() {
+        return false;
+    }
+
+    /**
+     * Removes every board, keeping the capacity
+     */
+    public void clear() {
+        Arrays.fill(this.keys, EMPTY);
+        this.size = 0;
+    }
+
+    /**
+     * Returns the value stored for a board, or -1 if there is none
+     * @param  board  the packed board
+     */
+    @Override
+    public int get(long board) {
+        int slot = hash(board) & this.mask;
+        while (EMPTY != this.keys[slot]) {
+            if (board == this.keys[slot]) {
+                return this.values[slot];
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a value for a board, replacing any value already stored
+     * @param  board  the packed board
+     * @param  value  a non-negative value
+     */
+    @Override
+    public void put(long board, int value) {
+        int slot = hash(board) & this.mask;
+        while (EMPTY != this.keys[slot]) {
+            if (board == this.keys[slot]) {
+                this.values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = board;
+        this.values[slot] = value;
+        // keep the load factor at or below one half
+        if (++this.size > this.mask >>> 1) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new long[oldKeys.length << 1];
+        this.values = new int[oldValues.length << 1];
+        this.mask = this.keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (EMPTY != oldKeys[i]) {
+                int slot = hash(oldKeys[i]) & this.mask;
+                while (EMPTY != this.keys[slot]) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the nibbles of a board over the bits of an int so that linear
+     * probing sees few clusters
+     */
+    static int hash(long board) {
+        long h = board * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Successors
+ *
+ * A caller-owned buffer that PuzzleState.expand() fills with the successors
+ * of one board, so that searches can be run without allocating anything
+ * per expansion. A board has at most four successors.
+ *
+ * @author   Kevin Nash (kjn33)
+ * @version  2017.10.17
+ */
+package P1;
+
+public class Successors {
+
+    /** The packed successor boards **/
+    public final long[] boards = new long[4];
+
+    /** h(n) of each successor **/
+    public final byte[] hVals = new byte[4];
+
+    /** The move of the blank leading to each successor **/
+    public final byte[] moves = new byte[4];
+
+    /** The number of successors in the buffer **/
+    public int size = 0;
+}